@@ -0,0 +1,58 @@
+package com.cooking.actor;
+
+import com.cooking.model.RecipeRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt construction in LLMActor and SubstitutionExpert. Lives in the actor
+ * package to reach the package-private prompt builders.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptBenchmark {
+
+    @Param({"plain", "dietary", "dietary+substitutions"})
+    public String variant;
+
+    private RecipeRequest request;
+
+    @Setup
+    public void setUp() {
+        switch (variant) {
+            case "plain":
+                request = new RecipeRequest("chocolate chip cookies", "none", false);
+                break;
+            case "dietary":
+                request = new RecipeRequest("chocolate chip cookies", "vegan", false);
+                break;
+            default:
+                request = new RecipeRequest("chocolate chip cookies", "vegan", true);
+        }
+    }
+
+    @Benchmark
+    public String recipePrompt() {
+        return LLMActor.buildPrompt(request);
+    }
+
+    @Benchmark
+    public String substitutionPrompt() {
+        return SubstitutionExpert.buildSubstitutionPrompt(request);
+    }
+}
@@ -0,0 +1,91 @@
+package com.cooking.api;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OpenAIClient response parsing: a complete chat completion body, and one
+ * server-sent-event chunk of a streamed completion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+    @State(Scope.Thread)
+    public static class Completion {
+        // Roughly a short recipe and a long one with substitutions
+        @Param({"1500", "6000"})
+        public int recipeChars;
+
+        String body;
+
+        @Setup
+        public void setUp() {
+            StringBuilder recipe = new StringBuilder(recipeChars);
+            String line = "2. Whisk the eggs with a pinch of salt until smooth and slightly frothy.\n";
+            while (recipe.length() < recipeChars) {
+                recipe.append(line);
+            }
+            recipe.setLength(recipeChars);
+
+            JSONObject message = new JSONObject()
+                    .put("role", "assistant")
+                    .put("content", recipe.toString());
+            body = new JSONObject()
+                    .put("id", "chatcmpl-bench")
+                    .put("object", "chat.completion")
+                    .put("model", "gpt-3.5-turbo")
+                    .put("choices", new JSONArray().put(new JSONObject()
+                            .put("index", 0)
+                            .put("message", message)
+                            .put("finish_reason", "stop")))
+                    .put("usage", new JSONObject()
+                            .put("prompt_tokens", 80)
+                            .put("completion_tokens", recipeChars / 4)
+                            .put("total_tokens", 80 + recipeChars / 4))
+                    .toString();
+        }
+    }
+
+    private String streamChunk;
+
+    @Setup
+    public void setUp() {
+        streamChunk = new JSONObject()
+                .put("id", "chatcmpl-bench")
+                .put("object", "chat.completion.chunk")
+                .put("model", "gpt-3.5-turbo")
+                .put("choices", new JSONArray().put(new JSONObject()
+                        .put("index", 0)
+                        .put("delta", new JSONObject().put("content", " frothy"))
+                        .put("finish_reason", JSONObject.NULL)))
+                .toString();
+    }
+
+    @Benchmark
+    public String parseCompletion(Completion completion) {
+        return OpenAIClient.parseCompletion(completion.body);
+    }
+
+    @Benchmark
+    public String parseStreamChunk() {
+        return OpenAIClient.parseStreamDelta(streamChunk);
+    }
+}
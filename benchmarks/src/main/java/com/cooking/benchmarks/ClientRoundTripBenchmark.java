@@ -0,0 +1,76 @@
+package com.cooking.benchmarks;
+
+import com.cooking.api.OllamaClient;
+import com.cooking.api.OpenAIClient;
+import com.cooking.stub.StubLlmServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full client round trips against a zero-latency {@link StubLlmServer} on loopback:
+ * request building, OkHttp or Spring AI's WebClient, connection reuse, NDJSON/SSE framing
+ * and JSON parsing. With no simulated model time, the result is the client stack's own
+ * cost per generation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientRoundTripBenchmark {
+
+    // Tokens per generated reply; the streaming paths handle one chunk per token
+    @Param({"50", "400"})
+    public int responseTokens;
+
+    private StubLlmServer stub;
+    private OpenAIClient openAI;
+    private OllamaClient ollama;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stub = StubLlmServer.start("127.0.0.1", 0, StubLlmServer.Settings.zeroLatency(responseTokens));
+        openAI = new OpenAIClient("bench", "gpt-3.5-turbo", 0.7, stub.baseUrl());
+        ollama = new OllamaClient(stub.baseUrl(), "llama3.2:1b");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stub.close();
+    }
+
+    @Benchmark
+    public String openAICompletion() {
+        return openAI.generateRecipeAsync("pancakes").toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public String openAIStreaming() {
+        return openAI.generateRecipeStreaming("pancakes", token -> { }).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public String ollamaStreaming() {
+        return ollama.generateRecipeStreaming("pancakes", token -> { }).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public String ollamaBlocking() throws IOException {
+        return ollama.generateRecipe("pancakes");
+    }
+}
@@ -0,0 +1,145 @@
+package com.cooking.benchmarks;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Props;
+import akka.actor.typed.javadsl.Behaviors;
+import com.cooking.actor.LLMActor;
+import com.cooking.actor.LoggingActor;
+import com.cooking.actor.RecipeFinder;
+import com.cooking.api.OpenAIClient;
+import com.cooking.metrics.RequestTiming;
+import com.cooking.model.RecipeRequest;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Requests per second through RecipeFinder → LLMActor → LoggingActor with a backend
+ * that answers instantly, so the numbers are the actors' own per-request overhead.
+ * Each invocation sends a batch of FindRecipe messages and waits for every reply.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class RecipeFinderThroughputBenchmark {
+    private static final int BATCH = 1000;
+    // Far more distinct requests than the cache holds, so "uncached" never hits it
+    private static final int DISTINCT_REQUESTS = 1 << 16;
+
+    private static final String RECIPE = "Scrambled Eggs\n\nIngredients:\n- 3 eggs\n- 1 tbsp butter\n- Salt\n\n"
+            + "Instructions:\n1. Whisk the eggs with the salt.\n2. Melt the butter over low heat.\n"
+            + "3. Stir the eggs gently until just set.\n";
+
+    /**
+     * Backend stub that completes every generation immediately.
+     */
+    static final class ZeroLatencyClient extends OpenAIClient {
+        ZeroLatencyClient() {
+            super("unused", "zero-latency", 0.0);
+        }
+
+        @Override
+        public String getBackendName() {
+            return "zero-latency";
+        }
+
+        @Override
+        public String generateRecipe(String prompt) {
+            return RECIPE;
+        }
+
+        @Override
+        public CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+            return CompletableFuture.completedFuture(RECIPE);
+        }
+
+        @Override
+        public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                               RequestTiming timing) {
+            onToken.accept(RECIPE);
+            return CompletableFuture.completedFuture(RECIPE);
+        }
+    }
+
+    private ActorSystem<Void> system;
+    private ActorRef<RecipeFinder.Command> recipeFinder;
+    private ActorRef<RecipeFinder.RecipeResponse> replies;
+    private volatile CountDownLatch outstanding;
+
+    private final RecipeRequest[] distinctRequests = new RecipeRequest[DISTINCT_REQUESTS];
+    private final RecipeRequest cachedRequest = new RecipeRequest("scrambled eggs", "none", false);
+    private int nextRequest = 0;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        for (int i = 0; i < DISTINCT_REQUESTS; i++) {
+            distinctRequests[i] = new RecipeRequest("recipe " + i, i % 2 == 0 ? "none" : "vegetarian", false);
+        }
+
+        system = ActorSystem.create(Behaviors.empty(), "throughput-bench",
+                ConfigFactory.parseString("akka.actor.provider = local").withFallback(ConfigFactory.load()));
+
+        ActorRef<LLMActor.Command> llm = system.systemActorOf(
+                LLMActor.create(new ZeroLatencyClient()), "llm", Props.empty());
+        ActorRef<LoggingActor.Command> logging = system.systemActorOf(
+                LoggingActor.create(), "logging", Props.empty());
+        recipeFinder = system.systemActorOf(RecipeFinder.create(llm, logging), "recipeFinder", Props.empty());
+        replies = system.systemActorOf(Behaviors.receiveMessage(reply -> {
+            outstanding.countDown();
+            return Behaviors.same();
+        }), "replies", Props.empty());
+
+        // Put the cached request in the cache
+        outstanding = new CountDownLatch(1);
+        recipeFinder.tell(new RecipeFinder.FindRecipe(cachedRequest, replies));
+        outstanding.await();
+    }
+
+    @TearDown
+    public void tearDown() {
+        system.terminate();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void uncached() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BATCH);
+        outstanding = done;
+        for (int i = 0; i < BATCH; i++) {
+            recipeFinder.tell(new RecipeFinder.FindRecipe(distinctRequests[nextRequest], replies));
+            nextRequest = (nextRequest + 1) & (DISTINCT_REQUESTS - 1);
+        }
+        done.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void cached() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BATCH);
+        outstanding = done;
+        for (int i = 0; i < BATCH; i++) {
+            recipeFinder.tell(new RecipeFinder.FindRecipe(cachedRequest, replies));
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,127 @@
+package com.cooking.benchmarks;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.Serializers;
+import com.cooking.actor.LLMActor;
+import com.cooking.metrics.RequestTiming;
+import com.cooking.model.RecipeRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of RecipeRequest on its own, and of the ProcessRecipeRequest and
+ * RecipeResponse messages through an Akka serializer: the configured cooking-binary one or,
+ * for comparison, jackson-json. Message sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class RecipeRequestSerializationBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RecipeRequest request = new RecipeRequest("chocolate chip cookies", "vegan", true);
+    private byte[] requestJson;
+
+    @Param({"cooking-binary", "jackson-json"})
+    public String binding;
+
+    private ActorSystem<Void> system;
+    private Serialization serialization;
+    private LLMActor.ProcessRecipeRequest message;
+    private Serializer serializer;
+    private String manifest;
+    private byte[] messageBytes;
+    private LLMActor.RecipeResponse response;
+    private String responseManifest;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        requestJson = mapper.writeValueAsBytes(request);
+
+        String bindings = "akka.actor.serialization-bindings {\n"
+                + "  \"com.cooking.actor.LLMActor$ProcessRecipeRequest\" = " + binding + "\n"
+                + "  \"com.cooking.actor.LLMActor$RecipeResponse\" = " + binding + "\n"
+                + "}";
+        system = ActorSystem.create(Behaviors.empty(), "serialization-bench",
+                ConfigFactory.parseString("akka.actor.provider = local")
+                        .withFallback(ConfigFactory.parseString(bindings))
+                        .withFallback(ConfigFactory.load()));
+        ActorRef<LLMActor.Response> replyTo = system.systemActorOf(
+                Behaviors.<LLMActor.Response>ignore(), "replyTo", akka.actor.typed.Props.empty());
+
+        serialization = SerializationExtension.get(system);
+        message = new LLMActor.ProcessRecipeRequest(42L, request, replyTo);
+        serializer = serialization.findSerializerFor(message);
+        manifest = Serializers.manifestFor(serializer, message);
+        messageBytes = serializer.toBinary(message);
+
+        StringBuilder recipe = new StringBuilder();
+        while (recipe.length() < 3000) {
+            recipe.append("2. Whisk the eggs with a pinch of salt until smooth and slightly frothy.\n");
+        }
+        response = new LLMActor.RecipeResponse(42L, recipe.toString(), RequestTiming.dispatched(42L));
+        responseManifest = Serializers.manifestFor(serializer, response);
+        responseBytes = serializer.toBinary(response);
+        System.out.printf("%n%s: ProcessRecipeRequest %d bytes, RecipeResponse %d bytes%n",
+                binding, messageBytes.length, responseBytes.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        system.terminate();
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() throws IOException {
+        return mapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public RecipeRequest deserializeRequest() throws IOException {
+        return mapper.readValue(requestJson, RecipeRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializeMessage() {
+        return serializer.toBinary(message);
+    }
+
+    @Benchmark
+    public Object deserializeMessage() {
+        return serialization.deserialize(messageBytes, serializer.identifier(), manifest).get();
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() {
+        return serializer.toBinary(response);
+    }
+
+    @Benchmark
+    public Object deserializeResponse() {
+        return serialization.deserialize(responseBytes, serializer.identifier(), responseManifest).get();
+    }
+}
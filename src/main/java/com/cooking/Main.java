@@ -1,33 +1,62 @@
 package com.cooking;
 
+import akka.actor.Address;
+import akka.actor.AddressFromURIString;
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.ActorSystem;
 import akka.actor.typed.Behavior;
 import akka.actor.typed.Props;
 import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.receptionist.Receptionist;
 import akka.cluster.typed.Cluster;
+import akka.cluster.typed.JoinSeedNodes;
 import akka.cluster.typed.Subscribe;
 import akka.cluster.ClusterEvent;
 import com.cooking.actor.LLMActor;
 import com.cooking.actor.LoggingActor;
 import com.cooking.actor.RecipeFinder;
 import com.cooking.actor.SubstitutionExpert;
+import com.cooking.api.BalancedOllamaClient;
+import com.cooking.api.FailoverClient;
 import com.cooking.api.OpenAIClient;
 import com.cooking.api.OllamaClient;
+import com.cooking.api.TieredModelClient;
+import com.cooking.cache.RecipeStore;
+import com.cooking.journal.RecipeJournal;
+import com.cooking.loadgen.LoadGenerator;
+import com.cooking.metrics.Metrics;
+import com.cooking.metrics.MetricsServer;
 import com.cooking.model.RecipeRequest;
+import com.cooking.pipeline.RecipePipeline;
+import com.cooking.sim.Simulation;
+import com.cooking.stub.StubLlmServer;
+import com.cooking.util.ConfigLoader;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Main {
     // Store actor references for testing
     private static ActorRef<RecipeFinder.Command> recipeFinderRef;
+    // Console requests enter node1's RecipeFinder through this bounded pipeline
+    private static RecipePipeline requestPipeline;
     private static ActorRef<SubstitutionExpert.Command> substitutionExpertRef;
     private static ActorRef<LLMActor.Command> llmActorNode1Ref;
     private static ActorRef<LLMActor.Command> llmActorNode2Ref;
     private static ActorRef<LoggingActor.Command> loggingActorRef;
     private static Scanner scanner = new Scanner(System.in);
+    // Set once the console has started; later MemberUp events (e.g. a load generator joining) must not start another
+    private static final AtomicBoolean consoleStarted = new AtomicBoolean(false);
 
     public static void main(String[] args) {
         // Handle pattern demonstration
@@ -55,6 +84,24 @@ public class Main {
             return;
         }
 
+        // Handle the local stand-in LLM server
+        if (args.length == 1 && "stub-server".equals(args[0])) {
+            runStubServer();
+            return;
+        }
+
+        // Handle virtual-time simulation
+        if (args.length >= 1 && "simulate".equals(args[0])) {
+            Simulation.run(args);
+            return;
+        }
+
+        // Handle load generation against a running cluster
+        if (args.length >= 1 && "loadgen".equals(args[0])) {
+            LoadGenerator.run(args);
+            return;
+        }
+
         // Handle cluster mode
         if (args.length < 2) {
             System.err.println("Usage:");
@@ -62,6 +109,9 @@ public class Main {
             System.err.println("  java Main akka-tests            # Comprehensive Akka framework tests");
             System.err.println("  java Main interactive           # Interactive recipe mode");
             System.err.println("  java Main test                  # Simple AI test");
+            System.err.println("  java Main stub-server           # Local stand-in Ollama/OpenAI server");
+            System.err.println("  java Main simulate [requests] [rps]  # Virtual-time capacity simulation");
+            System.err.println("  java Main loadgen [rps] [duration-seconds] [queries-file]  # Open-loop load test");
             System.err.println("  java Main <port> <role> [seed]  # Cluster mode");
             System.exit(1);
         }
@@ -492,12 +542,16 @@ public class Main {
                 System.out.println("📝 Request: " + request);
 
                 try {
-                    String recipe = aiClient.generateRecipe(buildDetailedPrompt(request));
-
                     System.out.println("\n" + "=".repeat(60));
                     System.out.println("🎉 YOUR RECIPE:");
                     System.out.println("=".repeat(60));
-                    System.out.println(recipe);
+
+                    // Print tokens as they are generated instead of waiting for the full recipe
+                    aiClient.generateRecipeStreaming(buildDetailedPrompt(request), System.out::print)
+                            .toCompletableFuture()
+                            .join();
+
+                    System.out.println();
                     System.out.println("=".repeat(60));
 
                 } catch (Exception e) {
@@ -630,6 +684,18 @@ public class Main {
         }
     }
 
+    private static void runStubServer() {
+        try (StubLlmServer stub = StubLlmServer.startFromConfig()) {
+            System.out.println("🧪 Stub LLM server running at " + stub.baseUrl());
+            System.out.println("💡 Set cooking.ollama.url or cooking.openai.base-url to it; press Enter to stop");
+            scanner.nextLine();
+            System.out.printf("📊 Served %d requests (%d rejected as busy, %d simulated failures)%n",
+                    stub.requestCount(), stub.rejectedCount(), stub.failedCount());
+        } catch (Exception e) {
+            System.err.println("❌ Stub server failed: " + e.getMessage());
+        }
+    }
+
     private static void startCluster(int port, String role, boolean isSeed) {
         // Load configuration
         Config config = ConfigFactory.load();
@@ -653,17 +719,35 @@ public class Main {
 
                     // Create actors based on role
                     if ("node1".equals(role)) {
-                        llmActorNode1Ref = context.spawn(LLMActor.create(aiClient), "llmActor");
-                        loggingActorRef = context.spawn(LoggingActor.create(), "loggingActor");
-                        recipeFinderRef = context.spawn(RecipeFinder.create(llmActorNode1Ref, loggingActorRef), "recipeFinder");
+                        llmActorNode1Ref = context.spawn(LLMActor.createPool(aiClient), "llmActor");
+                        context.spawn(LLMActor.overflowResponder(), "llmOverflowResponder");
+                        context.getSystem().receptionist().tell(Receptionist.register(LLMActor.SERVICE_KEY, llmActorNode1Ref));
+                        loggingActorRef = context.spawn(LoggingActor.create(openRecipeJournal(context)), "loggingActor",
+                                Metrics.instrumentedMailbox());
 
-                        context.getLog().info("✅ Node 1 actors created: RecipeFinder, LLMActor, LoggingActor");
+                        // RecipeFinder reaches the LLM pools of every node through the Receptionist
+                        ActorRef<LLMActor.Command> llmWorkers = context.spawn(LLMActor.clusterWorkers(), "llmWorkers");
+                        recipeFinderRef = context.spawn(
+                                RecipeFinder.create(llmWorkers, loggingActorRef, openRecipeStore(context)), "recipeFinder",
+                                Metrics.instrumentedMailbox());
+                        context.getSystem().receptionist().tell(Receptionist.register(RecipeFinder.SERVICE_KEY, recipeFinderRef));
+                        requestPipeline = RecipePipeline.fromConfig(context.getSystem(), recipeFinderRef);
 
-                    } else if ("node2".equals(role)) {
-                        llmActorNode2Ref = context.spawn(LLMActor.create(aiClient), "llmActor");
-                        substitutionExpertRef = context.spawn(SubstitutionExpert.create(aiClient), "substitutionExpert");
+                        context.getLog().info("✅ Node 1 actors created: RecipeFinder, LLMActor pool ({} workers), LoggingActor",
+                                ConfigLoader.getLlmPoolSize(aiClient.getBackendName()) * aiClient.getEndpointCount());
+
+                        startMetricsServer(context, port);
 
-                        context.getLog().info("✅ Node 2 actors created: LLMActor, SubstitutionExpert");
+                    } else if ("node2".equals(role)) {
+                        llmActorNode2Ref = context.spawn(LLMActor.createPool(aiClient), "llmActor");
+                        context.spawn(LLMActor.overflowResponder(), "llmOverflowResponder");
+                        context.getSystem().receptionist().tell(Receptionist.register(LLMActor.SERVICE_KEY, llmActorNode2Ref));
+                        substitutionExpertRef = context.spawn(SubstitutionExpert.create(aiClient), "substitutionExpert",
+                                Metrics.instrumentedMailbox());
+                        startMetricsServer(context, port);
+
+                        context.getLog().info("✅ Node 2 actors created: LLMActor pool ({} workers), SubstitutionExpert",
+                                ConfigLoader.getLlmPoolSize(aiClient.getBackendName()) * aiClient.getEndpointCount());
                     }
 
                     return Behaviors.empty();
@@ -676,6 +760,12 @@ public class Main {
         Cluster cluster = Cluster.get(system);
         if (isSeed) {
             cluster.manager().tell(akka.cluster.typed.Join.create(cluster.selfMember().address()));
+        } else {
+            List<Address> seedNodes = new ArrayList<>();
+            for (String seedNode : ConfigLoader.getSeedNodes()) {
+                seedNodes.add(AddressFromURIString.parse(seedNode));
+            }
+            cluster.manager().tell(new JoinSeedNodes(seedNodes));
         }
 
         // Subscribe to cluster events
@@ -693,7 +783,7 @@ public class Main {
                                     memberCount++;
                                 }
 
-                                if (memberCount >= 2 && "node1".equals(role)) {
+                                if (memberCount >= 2 && "node1".equals(role) && consoleStarted.compareAndSet(false, true)) {
                                     ctx.getLog().info("🚀 Both nodes are up! Cluster is ready for recipe requests!");
                                     startInteractiveClusterMode(system);
                                 }
@@ -718,32 +808,147 @@ public class Main {
         }
     }
 
-    private static OpenAIClient createAIClient(Config config, akka.actor.typed.javadsl.ActorContext<Void> context) {
-        // Try Ollama first
+    private static RecipeStore openRecipeStore(akka.actor.typed.javadsl.ActorContext<Void> context) {
         try {
-            OllamaClient ollama = new OllamaClient("llama3.2:1b");
-            // Quick test
-            ollama.generateRecipe("test");
-            context.getLog().info("🦙 Using Ollama (local AI)");
-            return ollama;
+            RecipeStore store = RecipeStore.openFromConfig();
+            if (store != null) {
+                context.getLog().info("💽 Recipe store opened with {} stored recipes", store.size());
+            }
+            return store;
         } catch (Exception e) {
-            context.getLog().warn("Ollama not available: {}", e.getMessage());
+            context.getLog().warn("Recipe store not available, continuing with the in-memory cache only: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void startMetricsServer(akka.actor.typed.javadsl.ActorContext<Void> context, int akkaPort) {
+        if (!ConfigLoader.isMetricsEnabled()) {
+            return;
         }
 
-        // Fallback to OpenAI
         try {
-            String apiKey = config.getString("cooking.openai.api-key");
-            if (!apiKey.isEmpty()) {
+            MetricsServer server = MetricsServer.start(ConfigLoader.getMetricsHost(),
+                    akkaPort + ConfigLoader.getMetricsPortOffset());
+            context.getSystem().getWhenTerminated().thenRun(server::close);
+        } catch (Exception e) {
+            context.getLog().warn("Metrics endpoint not started: {}", e.getMessage());
+        }
+    }
+
+    private static RecipeJournal openRecipeJournal(akka.actor.typed.javadsl.ActorContext<Void> context) {
+        try {
+            return RecipeJournal.fromConfig();
+        } catch (Exception e) {
+            context.getLog().warn("Recipe journal not available, requests will only be logged: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static OpenAIClient createAIClient(Config config, akka.actor.typed.javadsl.ActorContext<Void> context) {
+        // Try Ollama first, balancing over every configured server
+        List<String> ollamaEndpoints = ConfigLoader.getOllamaEndpoints();
+        OpenAIClient ollama;
+        if (ConfigLoader.isOllamaTieringEnabled()) {
+            ollama = new TieredModelClient(
+                    ollamaClient(ollamaEndpoints, ConfigLoader.getOllamaTierModel("small")),
+                    ConfigLoader.getOllamaTierSlo("small"),
+                    ollamaClient(ollamaEndpoints, ConfigLoader.getOllamaTierModel("large")),
+                    ConfigLoader.getOllamaTierSlo("large"),
+                    ConfigLoader.getOllamaTierThreshold(),
+                    ConfigLoader.getOllamaTierMinRecipeChars(),
+                    ConfigLoader.getOllamaTierSloWindow());
+            context.getLog().info("🪜 Ollama model tiers: {} / {}",
+                    ConfigLoader.getOllamaTierModel("small"), ConfigLoader.getOllamaTierModel("large"));
+        } else {
+            ollama = ollamaClient(ollamaEndpoints, ConfigLoader.getOllamaModel());
+        }
+        // Only lists the server's models, so the node does not wait for a model to load
+        CompletableFuture<Void> ollamaHealth = ollama.checkHealth().toCompletableFuture();
+        akka.actor.ActorSystem classicSystem = context.getSystem().classicSystem();
+
+        // OpenAI as fallback
+        OpenAIClient openAI = null;
+        try {
+            if (ConfigLoader.isOpenAIConfigured()) {
+                String apiKey = ConfigLoader.getOpenAIApiKey().trim();
                 String model = config.getString("cooking.openai.model");
                 double temperature = config.getDouble("cooking.openai.temperature");
-                context.getLog().info("🤖 Using OpenAI: {}", model);
-                return new OpenAIClient(apiKey, model, temperature);
+                openAI = new OpenAIClient(apiKey, model, temperature, ConfigLoader.getOpenAIBaseUrl());
             }
         } catch (Exception e) {
             context.getLog().warn("OpenAI not available: {}", e.getMessage());
         }
 
-        return null;
+        // With both configured, keep both: the circuit breakers route around whichever degrades,
+        // so an Ollama that is down now can take over again once it recovers
+        if (openAI != null && ConfigLoader.isFailoverEnabled()) {
+            context.getLog().info("🔀 Using Ollama (local AI) with OpenAI failover");
+            keepOllamaWarm(ollama, ollamaHealth, classicSystem);
+            return new FailoverClient(ollama, openAI, classicSystem.scheduler(), classicSystem.dispatcher());
+        }
+        if (openAI == null) {
+            // Nothing to fall back on: start anyway, Ollama can come up after the node
+            context.getLog().info("🦙 Using Ollama (local AI) on {} server(s)", ollamaEndpoints.size());
+            keepOllamaWarm(ollama, ollamaHealth, classicSystem);
+            return ollama;
+        }
+
+        // A one-off choice between the two, so it is worth waiting briefly for the answer
+        try {
+            ollamaHealth.get(ConfigLoader.getOllamaHealthCheckTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            context.getLog().info("🦙 Using Ollama (local AI) on {} server(s)", ollamaEndpoints.size());
+            keepOllamaWarm(ollama, ollamaHealth, classicSystem);
+            return ollama;
+        } catch (Exception e) {
+            context.getLog().warn("Ollama not available: {}", e instanceof ExecutionException ? e.getCause().getMessage() : e);
+            context.getLog().info("🤖 Using OpenAI: {}", ConfigLoader.getOpenAIModel());
+            return openAI;
+        }
+    }
+
+    /**
+     * Logs the outcome of the startup health check, then loads the models in the background
+     * and repeats that every refresh-interval so they stay resident. Runs off the guardian,
+     * hence the classic system's thread-safe log.
+     */
+    private static void keepOllamaWarm(OpenAIClient ollama, CompletableFuture<Void> health,
+                                       akka.actor.ActorSystem classicSystem) {
+        health.whenComplete((ok, failure) -> {
+            if (failure == null) {
+                classicSystem.log().info("✅ Ollama is up");
+            } else {
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                classicSystem.log().warning("Ollama not available yet: {}", cause.getMessage());
+            }
+        });
+        if (!ConfigLoader.isOllamaWarmUpEnabled()) {
+            return;
+        }
+
+        Duration keepAlive = ConfigLoader.getOllamaKeepAlive();
+        // Unknown until the first attempt, so that attempt is logged whichever way it goes;
+        // after that only changes are
+        AtomicReference<Boolean> warm = new AtomicReference<>(null);
+        classicSystem.scheduler().scheduleWithFixedDelay(Duration.ZERO,
+                ConfigLoader.getOllamaWarmUpRefreshInterval(), () -> {
+                    long start = System.nanoTime();
+                    ollama.warmUp(keepAlive).whenComplete((ok, failure) -> {
+                        Boolean previous = warm.getAndSet(failure == null);
+                        if (failure == null && !Boolean.TRUE.equals(previous)) {
+                            classicSystem.log().info("🔥 Ollama models loaded in {} ms, kept for {}",
+                                    (System.nanoTime() - start) / 1_000_000, keepAlive);
+                        } else if (failure != null && !Boolean.FALSE.equals(previous)) {
+                            classicSystem.log().warning("Ollama warm-up failed: {}", failure instanceof CompletionException
+                                    ? failure.getCause().getMessage() : failure.getMessage());
+                        }
+                    });
+                }, classicSystem.dispatcher());
+    }
+
+    private static OpenAIClient ollamaClient(List<String> endpoints, String model) {
+        return endpoints.size() > 1
+                ? new BalancedOllamaClient(endpoints, model)
+                : new OllamaClient(endpoints.get(0), model);
     }
 
     private static void startInteractiveClusterMode(ActorSystem<Void> system) {
@@ -895,39 +1100,58 @@ public class Main {
     }
 
     private static void sendRecipeRequestThroughCluster(ActorSystem<Void> system, RecipeRequest request) {
-        if (recipeFinderRef != null) {
-            system.systemActorOf(
-                    Behaviors.<Void>setup(ctx -> {
-                        ctx.getLog().info("📤 Processing request through cluster: {}", request);
-
-                        // Create response handler that prints to console
-                        ActorRef<RecipeFinder.RecipeResponse> responseHandler =
-                                ctx.spawn(Behaviors.<RecipeFinder.RecipeResponse>setup(respCtx -> {
-                                    return Behaviors.receive(RecipeFinder.RecipeResponse.class)
-                                            .onMessage(RecipeFinder.RecipeResponse.class, response -> {
-                                                System.out.println("\n" + "=".repeat(80));
-                                                System.out.println("🎉 YOUR RECIPE (Generated through Akka Cluster + Ollama):");
-                                                System.out.println("=".repeat(80));
-                                                System.out.println(response.response);
-                                                System.out.println("=".repeat(80));
-                                                System.out.println("⏱️  Response received at: " + new java.util.Date());
-                                                return Behaviors.same();
-                                            })
-                                            .build();
-                                }), "interactiveResponseHandler-" + System.currentTimeMillis());
-
-                        // Send request to RecipeFinder actor
-                        recipeFinderRef.tell(new RecipeFinder.FindRecipe(request, responseHandler));
-
-                        return Behaviors.stopped();
-                    }),
-                    "interactiveRequester-" + System.currentTimeMillis(),
-                    Props.empty()
-            );
-        } else {
+        if (recipeFinderRef == null || requestPipeline == null) {
             System.err.println("❌ RecipeFinder actor not available! Make sure cluster is running and you're on node1.");
+            return;
         }
+        system.log().info("📤 Processing request through cluster: {}", request);
+
+        // One console printer for both the streamed chunks and the final response; it stops after the response
+        ActorRef<Object> printer = system.systemActorOf(Behaviors.setup(printCtx -> {
+            boolean[] headerPrinted = {false};
+            return Behaviors.receive(Object.class)
+                    .onMessage(RecipeFinder.RecipeChunk.class, chunk -> {
+                        if (!headerPrinted[0]) {
+                            headerPrinted[0] = true;
+                            printRecipeHeader();
+                        }
+                        System.out.print(chunk.text);
+                        return Behaviors.same();
+                    })
+                    .onMessage(RecipeFinder.RecipeResponse.class, response -> {
+                        if (!headerPrinted[0]) {
+                            // Nothing was streamed (a cache hit or an error), print the whole response
+                            printRecipeHeader();
+                            System.out.print(response.response);
+                        }
+                        System.out.println();
+                        System.out.println("=".repeat(80));
+                        System.out.println("⏱️  Response received at: " + new java.util.Date());
+                        return Behaviors.stopped();
+                    })
+                    .build();
+        }), "interactiveResponseHandler-" + System.nanoTime(), Props.empty());
+        ActorRef<RecipeFinder.RecipeChunk> chunkHandler = printer.narrow();
+
+        // Queued behind earlier requests, or rejected at once if the pipeline is full
+        requestPipeline.submit(request, chunkHandler).whenComplete((response, failure) -> {
+            if (failure == null) {
+                printer.tell(response);
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause()
+                    : failure;
+            printer.tell(new RecipeFinder.RecipeResponse("Error: " + cause.getMessage(), "pipeline (failed)"));
+        });
+    }
+
+    private static void printRecipeHeader() {
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("🎉 YOUR RECIPE (Generated through Akka Cluster + Ollama):");
+        System.out.println("=".repeat(80));
     }
+
     // Add this method to your existing Main.java class (after the testAIConnection method)
 
     private static void testAllAkkaPatterns() {
@@ -1,83 +1,656 @@
 package com.cooking.actor;
 
+import akka.actor.Cancellable;
+import akka.actor.DeadLetter;
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
+import akka.actor.typed.MailboxSelector;
+import akka.actor.typed.eventstream.EventStream;
+import akka.actor.typed.SupervisorStrategy;
+import akka.actor.typed.receptionist.ServiceKey;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.GroupRouter;
+import akka.actor.typed.javadsl.PoolRouter;
 import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.Routers;
+import akka.stream.SourceRef;
+import akka.stream.javadsl.Source;
+import akka.stream.javadsl.StreamRefs;
+import com.cooking.api.AdaptiveLimiter;
+import com.cooking.api.ConcurrencyLimitedClient;
 import com.cooking.api.OpenAIClient;
+import com.cooking.metrics.Metrics;
+import com.cooking.metrics.RequestTiming;
 import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
 
 public class LLMActor extends AbstractBehavior<LLMActor.Command> {
     public interface Command {}
 
+    // Every node registers its worker pool under this key with the Receptionist
+    public static final ServiceKey<Command> SERVICE_KEY = ServiceKey.create(Command.class, "llmWorkers");
+
+    public static final long NO_DEADLINE = 0L;
+
     public static final class ProcessRecipeRequest implements Command {
+        // Correlation ID chosen by the sender, echoed back in every response
+        public final long requestId;
         public final RecipeRequest request;
         public final ActorRef<Response> replyTo;
+        // Optional stage breakdown, returned with the response
+        public final RequestTiming timing;
+        // Wall-clock time (epoch millis) after which nobody waits for the result; NO_DEADLINE if none
+        public final long deadlineEpochMillis;
 
         public ProcessRecipeRequest(RecipeRequest request, ActorRef<Response> replyTo) {
+            this(0L, request, replyTo, null);
+        }
+
+        public ProcessRecipeRequest(long requestId, RecipeRequest request, ActorRef<Response> replyTo) {
+            this(requestId, request, replyTo, null);
+        }
+
+        public ProcessRecipeRequest(long requestId, RecipeRequest request, ActorRef<Response> replyTo,
+                                    RequestTiming timing) {
+            this(requestId, request, replyTo, timing, NO_DEADLINE);
+        }
+
+        @JsonCreator
+        public ProcessRecipeRequest(@JsonProperty("requestId") long requestId,
+                                    @JsonProperty("request") RecipeRequest request,
+                                    @JsonProperty("replyTo") ActorRef<Response> replyTo,
+                                    @JsonProperty("timing") RequestTiming timing,
+                                    @JsonProperty("deadlineEpochMillis") long deadlineEpochMillis) {
+            this.requestId = requestId;
             this.request = request;
             this.replyTo = replyTo;
+            this.timing = timing;
+            this.deadlineEpochMillis = deadlineEpochMillis;
+        }
+    }
+
+    // Streaming variant: RecipeChunk messages are sent as tokens arrive, then the full RecipeResponse
+    public static final class StreamRecipeRequest implements Command {
+        public final long requestId;
+        public final RecipeRequest request;
+        public final ActorRef<Response> replyTo;
+        public final RequestTiming timing;
+        public final long deadlineEpochMillis;
+
+        public StreamRecipeRequest(long requestId, RecipeRequest request, ActorRef<Response> replyTo) {
+            this(requestId, request, replyTo, null);
+        }
+
+        public StreamRecipeRequest(long requestId, RecipeRequest request, ActorRef<Response> replyTo,
+                                   RequestTiming timing) {
+            this(requestId, request, replyTo, timing, NO_DEADLINE);
+        }
+
+        @JsonCreator
+        public StreamRecipeRequest(@JsonProperty("requestId") long requestId,
+                                   @JsonProperty("request") RecipeRequest request,
+                                   @JsonProperty("replyTo") ActorRef<Response> replyTo,
+                                   @JsonProperty("timing") RequestTiming timing,
+                                   @JsonProperty("deadlineEpochMillis") long deadlineEpochMillis) {
+            this.requestId = requestId;
+            this.request = request;
+            this.replyTo = replyTo;
+            this.timing = timing;
+            this.deadlineEpochMillis = deadlineEpochMillis;
+        }
+    }
+
+    // Later deadline for a running generation, sent to the worker named in its GenerationStarted
+    public static final class ExtendDeadline implements Command {
+        public final long requestId;
+        // Together with requestId identifies the generation: IDs are only unique per sender
+        public final ActorRef<Response> replyTo;
+        public final long deadlineEpochMillis;
+
+        @JsonCreator
+        public ExtendDeadline(@JsonProperty("requestId") long requestId,
+                              @JsonProperty("replyTo") ActorRef<Response> replyTo,
+                              @JsonProperty("deadlineEpochMillis") long deadlineEpochMillis) {
+            this.requestId = requestId;
+            this.replyTo = replyTo;
+            this.deadlineEpochMillis = deadlineEpochMillis;
         }
     }
 
     // Define all possible response types
     public interface Response {}
 
+    // A generation with a deadline has started on worker; send it ExtendDeadline to keep it running longer
+    public static final class GenerationStarted implements Response {
+        public final long requestId;
+        public final ActorRef<Command> worker;
+        @JsonCreator
+        public GenerationStarted(@JsonProperty("requestId") long requestId,
+                                 @JsonProperty("worker") ActorRef<Command> worker) {
+            this.requestId = requestId;
+            this.worker = worker;
+        }
+    }
+
     public static final class RecipeResponse implements Response {
+        public final long requestId;
         public final String response;
+        public final RequestTiming timing;
         public RecipeResponse(String response) {
+            this(0L, response, null);
+        }
+        public RecipeResponse(long requestId, String response) {
+            this(requestId, response, null);
+        }
+        @JsonCreator
+        public RecipeResponse(@JsonProperty("requestId") long requestId,
+                              @JsonProperty("response") String response,
+                              @JsonProperty("timing") RequestTiming timing) {
+            this.requestId = requestId;
             this.response = response;
+            this.timing = timing;
+        }
+    }
+
+    public static final class RecipeChunk implements Response {
+        public final long requestId;
+        public final String text;
+        @JsonCreator
+        public RecipeChunk(@JsonProperty("requestId") long requestId,
+                           @JsonProperty("text") String text) {
+            this.requestId = requestId;
+            this.text = text;
         }
     }
 
     public static final class RecipeError implements Response {
+        public final long requestId;
         public final String error;
+        public final RequestTiming timing;
         public RecipeError(String error) {
+            this(0L, error, null);
+        }
+        public RecipeError(long requestId, String error) {
+            this(requestId, error, null);
+        }
+        @JsonCreator
+        public RecipeError(@JsonProperty("requestId") long requestId,
+                           @JsonProperty("error") String error,
+                           @JsonProperty("timing") RequestTiming timing) {
+            this.requestId = requestId;
             this.error = error;
+            this.timing = timing;
+        }
+    }
+
+    // The deadline passed before the recipe was ready; the generation was skipped or cancelled
+    public static final class RecipeExpired implements Response {
+        public final long requestId;
+        public final RequestTiming timing;
+        @JsonCreator
+        public RecipeExpired(@JsonProperty("requestId") long requestId,
+                             @JsonProperty("timing") RequestTiming timing) {
+            this.requestId = requestId;
+            this.timing = timing;
+        }
+    }
+
+    // A large recipe for a remote RecipeFinder: the text arrives as a stream of chunks with
+    // backpressure instead of one big message that would hold up the association
+    public static final class RecipeStream implements Response {
+        public final long requestId;
+        public final SourceRef<String> chunks;
+        public final RequestTiming timing;
+        public RecipeStream(long requestId, SourceRef<String> chunks, RequestTiming timing) {
+            this.requestId = requestId;
+            this.chunks = chunks;
+            this.timing = timing;
+        }
+    }
+
+    // Internal message carrying the outcome of an async AI call back into the actor
+    private static final class GenerationCompleted implements Command {
+        public final long requestId;
+        public final ActorRef<Response> replyTo;
+        public final long startNanos;
+        public final RequestTiming timing;
+        public final String response;
+        public final Throwable failure;
+
+        public GenerationCompleted(long requestId, ActorRef<Response> replyTo, long startNanos,
+                                   RequestTiming timing, String response, Throwable failure) {
+            this.requestId = requestId;
+            this.replyTo = replyTo;
+            this.startNanos = startNanos;
+            this.timing = timing;
+            this.response = response;
+            this.failure = failure;
+        }
+    }
+
+    // Internal message: a generation's deadline passed, cancel it if it is still running
+    private static final class DeadlineReached implements Command {
+        public final Deadline deadline;
+        // The deadline the timer was set for; stale if it has since been extended
+        public final long deadlineEpochMillis;
+
+        public DeadlineReached(Deadline deadline, long deadlineEpochMillis) {
+            this.deadline = deadline;
+            this.deadlineEpochMillis = deadlineEpochMillis;
+        }
+    }
+
+    // A running generation with a deadline and the timer that cancels it there
+    private static final class Deadline {
+        final long requestId;
+        final ActorRef<Response> replyTo;
+        final CompletableFuture<String> generation;
+        long deadlineEpochMillis;
+        Cancellable timer;
+
+        Deadline(long requestId, ActorRef<Response> replyTo, CompletableFuture<String> generation,
+                 long deadlineEpochMillis) {
+            this.requestId = requestId;
+            this.replyTo = replyTo;
+            this.generation = generation;
+            this.deadlineEpochMillis = deadlineEpochMillis;
+        }
+    }
+
+    // Internal message for a streamed token, routed through the actor to keep replies ordered
+    private static final class ChunkGenerated implements Command {
+        public final long requestId;
+        public final ActorRef<Response> replyTo;
+        public final String text;
+
+        public ChunkGenerated(long requestId, ActorRef<Response> replyTo, String text) {
+            this.requestId = requestId;
+            this.replyTo = replyTo;
+            this.text = text;
         }
     }
 
     private final OpenAIClient aiClient;
+    private final int maxInFlight;
+    private int inFlight = 0;
+    // At most maxInFlight entries, so a scan is as cheap as a map
+    private final List<Deadline> deadlines = new ArrayList<>();
+
+    // Shared by every worker on the same backend
+    private final Metrics.Timer generationLatency;
+    private final Metrics.Counter generationErrors;
+    private final Metrics.Counter rejections;
+    private final Metrics.Gauge inFlightGauge;
+    private final Metrics.Counter expiredQueued;
+    private final Metrics.Counter expiredGenerating;
+    private final Metrics.Counter streamedReplies;
+    private final int streamRefThreshold;
+    private final int streamRefChunkSize;
 
-    private LLMActor(ActorContext<Command> context, OpenAIClient aiClient) {
+    private LLMActor(ActorContext<Command> context, OpenAIClient aiClient, int maxInFlight) {
         super(context);
         this.aiClient = aiClient;
+        this.maxInFlight = maxInFlight;
+
+        String backend = aiClient.getBackendName();
+        this.generationLatency = Metrics.timer("cooking_llm_generation_seconds",
+                "Time from dispatching a prompt to the complete recipe, per backend", "backend", backend);
+        this.generationErrors = Metrics.counter("cooking_llm_errors_total",
+                "Failed generations, per backend", "backend", backend);
+        this.rejections = Metrics.counter("cooking_llm_rejected_total",
+                "Requests rejected because the worker was at its in-flight limit", "backend", backend);
+        this.inFlightGauge = Metrics.gauge("cooking_llm_in_flight",
+                "Generations currently in flight, per backend", "backend", backend);
+        this.expiredQueued = Metrics.counter("cooking_llm_expired_total",
+                "Requests whose deadline passed, by where they were", "backend", backend, "stage", "queued");
+        this.expiredGenerating = Metrics.counter("cooking_llm_expired_total",
+                "Requests whose deadline passed, by where they were", "backend", backend, "stage", "generating");
+        this.streamedReplies = Metrics.counter("cooking_llm_stream_ref_replies_total",
+                "Recipes sent to a remote RecipeFinder as a chunked stream", "backend", backend);
+        this.streamRefThreshold = ConfigLoader.getStreamRefThreshold();
+        this.streamRefChunkSize = ConfigLoader.getStreamRefChunkSize();
+
         context.getLog().info("🤖 LLMActor created and ready");
     }
 
     public static Behavior<Command> create(OpenAIClient aiClient) {
-        return Behaviors.setup(context -> new LLMActor(context, aiClient));
+        return create(aiClient, Integer.MAX_VALUE);
+    }
+
+    public static Behavior<Command> create(OpenAIClient aiClient, int maxInFlight) {
+        return Metrics.timed("llmActor", Command.class,
+                Behaviors.setup(context -> new LLMActor(context, aiClient, maxInFlight)));
+    }
+
+    /**
+     * Pool of LLMActor workers sized for the client's backend (cooking.llm-pool.<backend>).
+     * Each worker has a bounded mailbox and caps its own concurrent generations, so
+     * excess work is rejected quickly instead of queueing without limit. Spawn an
+     * {@link #overflowResponder()} next to it, or requests dropped by a full mailbox are
+     * never answered.
+     */
+    public static PoolRouter<Command> createPool(OpenAIClient aiClient) {
+        return createPool(aiClient, System::nanoTime);
+    }
+
+    /**
+     * As {@link #createPool(OpenAIClient)}; the workers share one adaptive concurrency
+     * limit whose latency samples are taken with {@code nanoClock}.
+     */
+    public static PoolRouter<Command> createPool(OpenAIClient aiClient, LongSupplier nanoClock) {
+        String backend = aiClient.getBackendName();
+        // Sized per server, so a client balancing over several keeps all of them busy
+        int poolSize = ConfigLoader.getLlmPoolSize(backend) * aiClient.getEndpointCount();
+        int maxInFlightPerWorker = ConfigLoader.getLlmMaxInFlightPerWorker(backend);
+        int mailboxCapacity = ConfigLoader.getLlmMailboxCapacity(backend);
+        OpenAIClient limitedClient = new ConcurrencyLimitedClient(aiClient,
+                AdaptiveLimiter.fromConfig(backend, poolSize * maxInFlightPerWorker), nanoClock,
+                ConfigLoader.getLlmLimitInt(backend, "max-queued", poolSize * maxInFlightPerWorker),
+                ConfigLoader.getLlmLimitDuration(backend, "max-wait", Duration.ofSeconds(10)));
+
+        return Routers.pool(poolSize,
+                        Behaviors.supervise(create(limitedClient, maxInFlightPerWorker))
+                                .onFailure(SupervisorStrategy.restart()))
+                .withRoundRobinRouting()
+                .withRouteeProps(MailboxSelector.bounded(mailboxCapacity));
+    }
+
+    /**
+     * Answers generation requests that ended up in dead letters, mostly those a full worker
+     * mailbox could not take, with the same "busy" error as a worker at capacity; otherwise
+     * their senders would wait for a reply that never comes. One per actor system.
+     */
+    public static Behavior<DeadLetter> overflowResponder() {
+        return Behaviors.setup(context -> {
+            context.getSystem().eventStream().tell(new EventStream.Subscribe<>(DeadLetter.class, context.getSelf()));
+            Metrics.Counter overflowed = Metrics.counter("cooking_llm_mailbox_overflow_total",
+                    "Generation requests that reached dead letters and were answered as busy");
+
+            return Behaviors.receive(DeadLetter.class)
+                    .onMessage(DeadLetter.class, dead -> {
+                        Object message = dead.message();
+                        if (message instanceof ProcessRecipeRequest) {
+                            ProcessRecipeRequest msg = (ProcessRecipeRequest) message;
+                            rejectDropped(context.getLog(), msg.requestId, msg.replyTo, msg.timing);
+                            overflowed.increment();
+                        } else if (message instanceof StreamRecipeRequest) {
+                            StreamRecipeRequest msg = (StreamRecipeRequest) message;
+                            rejectDropped(context.getLog(), msg.requestId, msg.replyTo, msg.timing);
+                            overflowed.increment();
+                        }
+                        return Behaviors.same();
+                    })
+                    .build();
+        });
+    }
+
+    private static void rejectDropped(Logger log, long requestId, ActorRef<Response> replyTo, RequestTiming timing) {
+        log.warn("⛔ Request {} was dropped before reaching an LLM worker, rejecting it", requestId);
+        replyTo.tell(new RecipeError(requestId, "LLM worker busy, please retry later", timing));
+    }
+
+    /**
+     * Cluster-wide view of all worker pools registered under {@link #SERVICE_KEY}.
+     * Pools on nodes that leave the cluster drop out of the rotation automatically.
+     */
+    public static GroupRouter<Command> clusterWorkers() {
+        return Routers.group(SERVICE_KEY).withRoundRobinRouting();
     }
 
     @Override
     public Receive<Command> createReceive() {
         return newReceiveBuilder()
                 .onMessage(ProcessRecipeRequest.class, this::onProcessRecipeRequest)
+                .onMessage(StreamRecipeRequest.class, this::onStreamRecipeRequest)
+                .onMessage(ChunkGenerated.class, this::onChunkGenerated)
+                .onMessage(GenerationCompleted.class, this::onGenerationCompleted)
+                .onMessage(DeadlineReached.class, this::onDeadlineReached)
+                .onMessage(ExtendDeadline.class, this::onExtendDeadline)
                 .build();
     }
 
     private Behavior<Command> onProcessRecipeRequest(ProcessRecipeRequest msg) {
         getContext().getLog().info("🧠 LLMActor processing: {}", msg.request);
 
+        RequestTiming timing = RequestTiming.orNone(msg.timing);
+        timing.received();
+
+        if (dropWhenExpired(msg.requestId, msg.replyTo, msg.timing, msg.deadlineEpochMillis)
+                || rejectWhenBusy(msg.requestId, msg.replyTo, msg.timing)) {
+            return this;
+        }
+
         try {
+            long start = System.nanoTime();
             String prompt = buildPrompt(msg.request);
+            timing.lap(RequestTiming.Stage.PROMPT);
             getContext().getLog().info("🔄 Calling AI with prompt...");
 
-            String response = aiClient.generateRecipe(prompt);
-
-            getContext().getLog().info("✅ AI response received (length: {} chars)", response.length());
-            msg.replyTo.tell(new RecipeResponse(response));
+            // Don't block the dispatcher: the result comes back as a GenerationCompleted message
+            CompletableFuture<String> generation = aiClient.forRequest(msg.request)
+                    .generateRecipeAsync(prompt, timing).toCompletableFuture();
+            cancelAtDeadline(msg.requestId, msg.replyTo, generation, msg.deadlineEpochMillis);
+            getContext().pipeToSelf(generation,
+                    (response, failure) -> new GenerationCompleted(msg.requestId, msg.replyTo, start,
+                            msg.timing, response, failure));
+            started();
 
         } catch (Exception e) {
             getContext().getLog().error("❌ Error processing recipe request: {}", e.getMessage());
-            msg.replyTo.tell(new RecipeError("Error generating recipe: " + e.getMessage()));
+            msg.replyTo.tell(new RecipeError(msg.requestId, "Error generating recipe: " + e.getMessage(), msg.timing));
         }
         return this;
     }
 
-    private String buildPrompt(RecipeRequest request) {
+    private Behavior<Command> onStreamRecipeRequest(StreamRecipeRequest msg) {
+        getContext().getLog().info("🧠 LLMActor streaming: {}", msg.request);
+
+        RequestTiming timing = RequestTiming.orNone(msg.timing);
+        timing.received();
+
+        if (dropWhenExpired(msg.requestId, msg.replyTo, msg.timing, msg.deadlineEpochMillis)
+                || rejectWhenBusy(msg.requestId, msg.replyTo, msg.timing)) {
+            return this;
+        }
+
+        try {
+            long start = System.nanoTime();
+            String prompt = buildPrompt(msg.request);
+            timing.lap(RequestTiming.Stage.PROMPT);
+            ActorRef<Command> self = getContext().getSelf();
+
+            CompletableFuture<String> generation = aiClient.forRequest(msg.request).generateRecipeStreaming(prompt,
+                    token -> self.tell(new ChunkGenerated(msg.requestId, msg.replyTo, token)), timing)
+                    .toCompletableFuture();
+            cancelAtDeadline(msg.requestId, msg.replyTo, generation, msg.deadlineEpochMillis);
+            getContext().pipeToSelf(generation,
+                    (response, failure) -> new GenerationCompleted(msg.requestId, msg.replyTo, start,
+                            msg.timing, response, failure));
+            started();
+
+        } catch (Exception e) {
+            getContext().getLog().error("❌ Error streaming recipe request: {}", e.getMessage());
+            msg.replyTo.tell(new RecipeError(msg.requestId, "Error generating recipe: " + e.getMessage(), msg.timing));
+        }
+        return this;
+    }
+
+    private Behavior<Command> onChunkGenerated(ChunkGenerated msg) {
+        msg.replyTo.tell(new RecipeChunk(msg.requestId, msg.text));
+        return this;
+    }
+
+    private Behavior<Command> onGenerationCompleted(GenerationCompleted msg) {
+        inFlight--;
+        inFlightGauge.decrement();
+        generationLatency.recordSince(msg.startNanos);
+
+        Deadline deadline = findDeadline(msg.requestId, msg.replyTo);
+        if (deadline != null) {
+            deadlines.remove(deadline);
+            deadline.timer.cancel();
+        }
+
+        RequestTiming timing = RequestTiming.orNone(msg.timing);
+        timing.lap(RequestTiming.Stage.COMPLETION);
+        timing.replied();
+
+        Throwable cause = msg.failure instanceof CompletionException && msg.failure.getCause() != null
+                ? msg.failure.getCause()
+                : msg.failure;
+        if (cause instanceof CancellationException) {
+            expiredGenerating.increment();
+            getContext().getLog().warn("⌛ Generation for request {} cancelled at its deadline", msg.requestId);
+            msg.replyTo.tell(new RecipeExpired(msg.requestId, msg.timing));
+        } else if (cause instanceof ConcurrencyLimitedClient.LimitExceededException) {
+            rejections.increment();
+            getContext().getLog().warn("⛔ {}, rejecting request {}", cause.getMessage(), msg.requestId);
+            msg.replyTo.tell(new RecipeError(msg.requestId, "LLM worker busy, please retry later", msg.timing));
+        } else if (cause != null) {
+            generationErrors.increment();
+            getContext().getLog().error("❌ Error processing recipe request: {}", cause.getMessage());
+            msg.replyTo.tell(new RecipeError(msg.requestId, "Error generating recipe: " + cause.getMessage(), msg.timing));
+        } else {
+            getContext().getLog().info("✅ AI response received (length: {} chars)", msg.response.length());
+            replyWithRecipe(msg.requestId, msg.replyTo, msg.response, msg.timing);
+        }
+        return this;
+    }
+
+    private void replyWithRecipe(long requestId, ActorRef<Response> replyTo, String recipe, RequestTiming timing) {
+        // Local replies are never serialized, so only remote ones are worth chunking
+        if (streamRefThreshold < 0 || recipe.length() <= streamRefThreshold
+                || !replyTo.path().address().hasGlobalScope()) {
+            replyTo.tell(new RecipeResponse(requestId, recipe, timing));
+            return;
+        }
+
+        streamedReplies.increment();
+        SourceRef<String> chunks = Source.from(chunk(recipe, streamRefChunkSize))
+                .runWith(StreamRefs.sourceRef(), getContext().getSystem());
+        replyTo.tell(new RecipeStream(requestId, chunks, timing));
+    }
+
+    // Splits text into pieces of at most size chars, never between the halves of a surrogate pair
+    static List<String> chunk(String text, int size) {
+        List<String> chunks = new ArrayList<>(text.length() / size + 1);
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + size);
+            if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1)) && end - 1 > start) {
+                end--;
+            }
+            chunks.add(text.substring(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private Behavior<Command> onDeadlineReached(DeadlineReached msg) {
+        // A timer that fired just before its extension arrived
+        if (!deadlines.contains(msg.deadline) || msg.deadline.deadlineEpochMillis != msg.deadlineEpochMillis) {
+            return this;
+        }
+        // Completes the generation with a CancellationException; the client aborts the HTTP
+        // call or stream so the backend stops working on it
+        msg.deadline.generation.cancel(true);
+        return this;
+    }
+
+    // Replies RecipeExpired instead of starting work nobody is waiting for any more
+    private boolean dropWhenExpired(long requestId, ActorRef<Response> replyTo, RequestTiming timing,
+                                    long deadlineEpochMillis) {
+        if (deadlineEpochMillis == NO_DEADLINE || System.currentTimeMillis() < deadlineEpochMillis) {
+            return false;
+        }
+
+        expiredQueued.increment();
+        getContext().getLog().warn("⌛ Request {} expired while queued, skipping generation", requestId);
+        RequestTiming.orNone(timing).replied();
+        replyTo.tell(new RecipeExpired(requestId, timing));
+        return true;
+    }
+
+    // Also tells the sender which worker runs the generation, so it can extend the deadline
+    private void cancelAtDeadline(long requestId, ActorRef<Response> replyTo, CompletableFuture<String> generation,
+                                  long deadlineEpochMillis) {
+        if (deadlineEpochMillis == NO_DEADLINE) {
+            return;
+        }
+        Deadline deadline = new Deadline(requestId, replyTo, generation, deadlineEpochMillis);
+        deadline.timer = scheduleDeadline(deadline);
+        deadlines.add(deadline);
+        replyTo.tell(new GenerationStarted(requestId, getContext().getSelf()));
+    }
+
+    private Cancellable scheduleDeadline(Deadline deadline) {
+        Duration remaining = Duration.ofMillis(
+                Math.max(0L, deadline.deadlineEpochMillis - System.currentTimeMillis()));
+        return getContext().scheduleOnce(remaining, getContext().getSelf(),
+                new DeadlineReached(deadline, deadline.deadlineEpochMillis));
+    }
+
+    // Ignored once the generation has finished or been cancelled; the sender gets its reply either way
+    private Behavior<Command> onExtendDeadline(ExtendDeadline msg) {
+        Deadline deadline = findDeadline(msg.requestId, msg.replyTo);
+        if (deadline == null) {
+            return this;
+        }
+
+        deadline.timer.cancel();
+        if (msg.deadlineEpochMillis == NO_DEADLINE) {
+            deadlines.remove(deadline);
+            getContext().getLog().debug("⏳ Request {} no longer has a deadline", msg.requestId);
+            return this;
+        }
+        deadline.deadlineEpochMillis = Math.max(deadline.deadlineEpochMillis, msg.deadlineEpochMillis);
+        deadline.timer = scheduleDeadline(deadline);
+        getContext().getLog().debug("⏳ Deadline for request {} extended", msg.requestId);
+        return this;
+    }
+
+    private Deadline findDeadline(long requestId, ActorRef<Response> replyTo) {
+        for (int i = 0; i < deadlines.size(); i++) {
+            Deadline deadline = deadlines.get(i);
+            if (deadline.requestId == requestId && deadline.replyTo.equals(replyTo)) {
+                return deadline;
+            }
+        }
+        return null;
+    }
+
+    private boolean rejectWhenBusy(long requestId, ActorRef<Response> replyTo, RequestTiming timing) {
+        if (inFlight < maxInFlight) {
+            return false;
+        }
+
+        rejections.increment();
+        getContext().getLog().warn("⛔ LLMActor at capacity ({} in flight), rejecting request {}", inFlight, requestId);
+        RequestTiming.orNone(timing).replied();
+        replyTo.tell(new RecipeError(requestId, "LLM worker busy, please retry later", timing));
+        return true;
+    }
+
+    private void started() {
+        inFlight++;
+        inFlightGauge.increment();
+    }
+
+    // Package-private for the prompt benchmarks
+    static String buildPrompt(RecipeRequest request) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("Generate a detailed recipe for: ").append(request.getQuery());
 
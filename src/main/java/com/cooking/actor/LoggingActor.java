@@ -1,12 +1,15 @@
 package com.cooking.actor;
 
 import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
-import com.cooking.model.RecipeRequest;
+import com.cooking.journal.RecipeJournal;
+import com.cooking.metrics.Metrics;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -25,19 +28,34 @@ public class LoggingActor extends AbstractBehavior<LoggingActor.Command> {
 
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    private LoggingActor(ActorContext<Command> context) {
+    // Log every Nth dropped journal entry so a full queue doesn't flood the log
+    private static final long DROP_WARN_EVERY = 1000;
+
+    private final RecipeJournal journal;
+
+    private LoggingActor(ActorContext<Command> context, RecipeJournal journal) {
         super(context);
-        context.getLog().info("📝 LoggingActor created and ready");
+        this.journal = journal;
+        context.getLog().info("📝 LoggingActor created and ready{}", journal != null ? " (journaling to disk)" : "");
     }
 
     public static Behavior<Command> create() {
-        return Behaviors.setup(LoggingActor::new);
+        return create(null);
+    }
+
+    /**
+     * @param journal optional durable journal; LoggingActor takes ownership and closes it when stopped
+     */
+    public static Behavior<Command> create(RecipeJournal journal) {
+        return Metrics.timed("loggingActor", Command.class,
+                Behaviors.setup(context -> new LoggingActor(context, journal)));
     }
 
     @Override
     public Receive<Command> createReceive() {
         return newReceiveBuilder()
                 .onMessage(LogRecipeRequest.class, this::onLogRecipeRequest)
+                .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
@@ -52,15 +70,24 @@ public class LoggingActor extends AbstractBehavior<LoggingActor.Command> {
                 msg.response.length()
         );
 
-        // You could also write to file here for persistent logging
-        // writeToLogFile(timestamp, msg.request, msg.response);
+        if (journal != null && !journal.append(msg.request, msg.response)
+                && journal.droppedCount() % DROP_WARN_EVERY == 1) {
+            getContext().getLog().warn("Recipe journal queue is full, {} entries dropped so far", journal.droppedCount());
+        }
 
         return this;
     }
 
-    // Optional: Write to file for persistent logging
-    private void writeToLogFile(String timestamp, RecipeRequest request, String response) {
-        // Implementation for file logging if needed
-        // Could use Files.write() to append to a log file
+    private Behavior<Command> onPostStop() {
+        if (journal != null) {
+            try {
+                journal.close();
+                getContext().getLog().info("📝 Recipe journal closed: {} entries in {} batches, {} dropped",
+                        journal.appendedCount(), journal.batchCount(), journal.droppedCount());
+            } catch (IOException e) {
+                getContext().getLog().warn("Failed to close recipe journal: {}", e.getMessage());
+            }
+        }
+        return this;
     }
 }
\ No newline at end of file
@@ -2,23 +2,43 @@ package com.cooking.actor;
 
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
 import akka.actor.typed.javadsl.*;
+import akka.actor.typed.receptionist.ServiceKey;
+import akka.stream.javadsl.Sink;
+import com.cooking.cache.RecipeCache;
+import com.cooking.cache.RecipeStore;
+import com.cooking.metrics.Metrics;
+import com.cooking.metrics.RecipeRequestEvent;
+import com.cooking.metrics.RequestTiming;
 import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+import com.cooking.util.LongHashMap;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.io.IOException;
 import java.time.Duration;
-import java.util.concurrent.CompletionStage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 public class RecipeFinder extends AbstractBehavior<RecipeFinder.Command> {
 
     // Commands
     public interface Command {}
 
+    // node1 registers its RecipeFinder under this key, so other nodes (e.g. the load generator) can find it
+    public static final ServiceKey<Command> SERVICE_KEY = ServiceKey.create(Command.class, "recipeFinder");
+
     // Regular tell pattern
     public static final class FindRecipe implements Command {
         public final RecipeRequest request;
         public final ActorRef<RecipeResponse> replyTo;
 
-        public FindRecipe(RecipeRequest request, ActorRef<RecipeResponse> replyTo) {
+        @JsonCreator
+        public FindRecipe(@JsonProperty("request") RecipeRequest request,
+                          @JsonProperty("replyTo") ActorRef<RecipeResponse> replyTo) {
             this.request = request;
             this.replyTo = replyTo;
         }
@@ -29,7 +49,9 @@ public class RecipeFinder extends AbstractBehavior<RecipeFinder.Command> {
         public final RecipeRequest request;
         public final ActorRef<RecipeResponse> replyTo;
 
-        public FindRecipeWithAsk(RecipeRequest request, ActorRef<RecipeResponse> replyTo) {
+        @JsonCreator
+        public FindRecipeWithAsk(@JsonProperty("request") RecipeRequest request,
+                                 @JsonProperty("replyTo") ActorRef<RecipeResponse> replyTo) {
             this.request = request;
             this.replyTo = replyTo;
         }
@@ -40,52 +62,240 @@ public class RecipeFinder extends AbstractBehavior<RecipeFinder.Command> {
         public final RecipeRequest request;
         public final ActorRef<RecipeResponse> originalSender;
 
-        public ForwardToLLM(RecipeRequest request, ActorRef<RecipeResponse> originalSender) {
+        @JsonCreator
+        public ForwardToLLM(@JsonProperty("request") RecipeRequest request,
+                            @JsonProperty("originalSender") ActorRef<RecipeResponse> originalSender) {
             this.request = request;
             this.originalSender = originalSender;
         }
     }
 
+    // Streaming command: partial chunks go to chunkReplyTo, the complete recipe to replyTo
+    public static final class FindRecipeStreaming implements Command {
+        public final RecipeRequest request;
+        public final ActorRef<RecipeChunk> chunkReplyTo;
+        public final ActorRef<RecipeResponse> replyTo;
+
+        @JsonCreator
+        public FindRecipeStreaming(@JsonProperty("request") RecipeRequest request,
+                                   @JsonProperty("chunkReplyTo") ActorRef<RecipeChunk> chunkReplyTo,
+                                   @JsonProperty("replyTo") ActorRef<RecipeResponse> replyTo) {
+            this.request = request;
+            this.chunkReplyTo = chunkReplyTo;
+            this.replyTo = replyTo;
+        }
+    }
+
+    // Request pipeline, lookup stage: answers from the cache or store only; a null response means a miss
+    public static final class LookupRecipe implements Command {
+        public final RecipeRequest request;
+        public final ActorRef<RecipeResponse> replyTo;
+
+        @JsonCreator
+        public LookupRecipe(@JsonProperty("request") RecipeRequest request,
+                            @JsonProperty("replyTo") ActorRef<RecipeResponse> replyTo) {
+            this.request = request;
+            this.replyTo = replyTo;
+        }
+    }
+
+    // Request pipeline, generation stage: goes straight to the LLM, the lookup stage already missed.
+    // chunkReplyTo may be null when the caller does not want partial text.
+    public static final class GenerateRecipe implements Command {
+        public final RecipeRequest request;
+        public final ActorRef<RecipeChunk> chunkReplyTo;
+        public final ActorRef<RecipeResponse> replyTo;
+
+        @JsonCreator
+        public GenerateRecipe(@JsonProperty("request") RecipeRequest request,
+                              @JsonProperty("chunkReplyTo") ActorRef<RecipeChunk> chunkReplyTo,
+                              @JsonProperty("replyTo") ActorRef<RecipeResponse> replyTo) {
+            this.request = request;
+            this.chunkReplyTo = chunkReplyTo;
+            this.replyTo = replyTo;
+        }
+    }
+
+    // Partial recipe text, sent while the LLM is still generating
+    public static final class RecipeChunk {
+        public final String text;
+
+        @JsonCreator
+        public RecipeChunk(@JsonProperty("text") String text) {
+            this.text = text;
+        }
+    }
+
     // Response
     public static final class RecipeResponse {
         public final String response;
         public final String processingMethod;
 
-        public RecipeResponse(String response, String processingMethod) {
+        @JsonCreator
+        public RecipeResponse(@JsonProperty("response") String response,
+                              @JsonProperty("processingMethod") String processingMethod) {
             this.response = response;
             this.processingMethod = processingMethod;
         }
     }
 
-    // Internal adapter for LLM responses
+    // Internal adapter for LLM responses; one long-lived adapter serves every request
     private static final class WrappedLLMResponse implements Command {
         public final LLMActor.Response response;
-        public final ActorRef<RecipeResponse> originalSender;
-        public final String processingMethod;
 
-        public WrappedLLMResponse(LLMActor.Response response,
-                                  ActorRef<RecipeResponse> originalSender,
-                                  String processingMethod) {
+        public WrappedLLMResponse(LLMActor.Response response) {
             this.response = response;
-            this.originalSender = originalSender;
+        }
+    }
+
+    // Periodic check for ask-pattern requests and generations that ran past their timeout
+    private enum SweepTimeouts implements Command {
+        INSTANCE
+    }
+
+    // One LLM generation, shared by every waiter that asked for an equal RecipeRequest
+    private static final class Flight {
+        final long flightId;
+        final RecipeRequest request;
+        final RequestTiming timing;
+        final boolean streaming;
+        // Set at launch; the sweep fails the flight after this, whether or not its waiters have deadlines
+        long expiresAtNanos;
+        // Text streamed so far, replayed to streaming waiters that join mid-generation (streaming flights only)
+        final StringBuilder streamed;
+        // Characters of this generation its waiters already got from the expired one it replaces
+        int alreadyStreamed;
+        // Deadline the generation should run to, and the one it was sent with
+        long deadlineEpochMillis;
+        long launchDeadlineEpochMillis;
+        // Worker running the generation, from its GenerationStarted; null until then or without a deadline
+        ActorRef<LLMActor.Command> worker;
+        // Begun at dispatch so the JFR event spans the whole generation
+        final RecipeRequestEvent event = new RecipeRequestEvent();
+        long[] waiterIds = new long[2];
+        int waiterCount = 0;
+
+        Flight(long flightId, RecipeRequest request, boolean streaming) {
+            this(flightId, request, streaming, "");
+        }
+
+        Flight(long flightId, RecipeRequest request, boolean streaming, String streamedBefore) {
+            this.flightId = flightId;
+            this.request = request;
+            this.streaming = streaming;
+            this.streamed = streaming ? new StringBuilder(streamedBefore) : null;
+            this.alreadyStreamed = streaming ? streamedBefore.length() : 0;
+            this.timing = RequestTiming.dispatched(flightId);
+            this.event.begin();
+        }
+
+        void addWaiter(long waiterId) {
+            if (waiterCount == waiterIds.length) {
+                waiterIds = Arrays.copyOf(waiterIds, waiterCount * 2);
+            }
+            waiterIds[waiterCount++] = waiterId;
+        }
+    }
+
+    // Bookkeeping for one requester waiting on a flight, keyed by its own ID
+    private static final class PendingRequest {
+        final RecipeRequest request;
+        final ActorRef<RecipeResponse> replyTo;
+        final ActorRef<RecipeChunk> chunkReplyTo;
+        final String processingMethod;
+        final long startNanos;
+        final long deadlineNanos;
+
+        PendingRequest(RecipeRequest request,
+                       ActorRef<RecipeResponse> replyTo,
+                       ActorRef<RecipeChunk> chunkReplyTo,
+                       String processingMethod,
+                       long startNanos,
+                       long deadlineNanos) {
+            this.request = request;
+            this.replyTo = replyTo;
+            this.chunkReplyTo = chunkReplyTo;
             this.processingMethod = processingMethod;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
         }
     }
 
+    private static final Metrics.Timer[] STAGE_TIMERS = new Metrics.Timer[RequestTiming.Stage.values().length];
+    static {
+        for (RequestTiming.Stage stage : RequestTiming.Stage.values()) {
+            STAGE_TIMERS[stage.ordinal()] = Metrics.timer("cooking_stage_seconds",
+                    "Time generations spent in each stage of the request path", "stage", stage.label());
+        }
+    }
+
+    private static final Duration ASK_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration SWEEP_INTERVAL = Duration.ofSeconds(1);
+    private static final long NO_DEADLINE = 0L;
+    private static final Duration FLIGHT_TIMEOUT = ConfigLoader.getFlightTimeout();
+
     private final ActorRef<LLMActor.Command> llmActor;
     private final ActorRef<LoggingActor.Command> loggingActor;
+    private final TimerScheduler<Command> timers;
+    private final ActorRef<LLMActor.Response> llmResponseAdapter;
+    private final RecipeCache cache = RecipeCache.fromConfig();
+    private final RecipeStore store;
+    private final LongHashMap<PendingRequest> pending = new LongHashMap<>();
+    private final LongHashMap<Flight> flights = new LongHashMap<>();
+    private final Map<RecipeRequest, Flight> flightsByRequest = new HashMap<>();
+    private long nextRequestId = 0L;
+    private int pendingWithDeadline = 0;
+    private long[] expiredBuffer = new long[16];
+
+    private final Metrics.Counter cacheHits = Metrics.counter("cooking_cache_lookups_total",
+            "Recipe lookups by result", "result", "hit");
+    private final Metrics.Counter storeHits = Metrics.counter("cooking_cache_lookups_total",
+            "Recipe lookups by result", "result", "store_hit");
+    private final Metrics.Counter cacheMisses = Metrics.counter("cooking_cache_lookups_total",
+            "Recipe lookups by result", "result", "miss");
+    private final Metrics.Gauge cacheEntries = Metrics.gauge("cooking_cache_entries",
+            "Recipes held in the in-memory cache");
+    private final Metrics.Gauge pendingGauge = Metrics.gauge("cooking_recipe_finder_pending",
+            "Requests waiting for a generation");
+    private final Metrics.Gauge flightsGauge = Metrics.gauge("cooking_recipe_finder_flights",
+            "Distinct generations in flight after coalescing");
 
     public static Behavior<Command> create(ActorRef<LLMActor.Command> llmActor,
                                            ActorRef<LoggingActor.Command> loggingActor) {
-        return Behaviors.setup(context -> new RecipeFinder(context, llmActor, loggingActor));
+        return create(llmActor, loggingActor, null);
+    }
+
+    /**
+     * @param store optional persistent store beneath the in-memory cache; RecipeFinder
+     *              takes ownership and closes it when stopped
+     */
+    public static Behavior<Command> create(ActorRef<LLMActor.Command> llmActor,
+                                           ActorRef<LoggingActor.Command> loggingActor,
+                                           RecipeStore store) {
+        return Metrics.timed("recipeFinder", Command.class, Behaviors.setup(context ->
+                Behaviors.withTimers(timers -> new RecipeFinder(context, timers, llmActor, loggingActor, store))));
     }
 
     private RecipeFinder(ActorContext<Command> context,
+                         TimerScheduler<Command> timers,
                          ActorRef<LLMActor.Command> llmActor,
-                         ActorRef<LoggingActor.Command> loggingActor) {
+                         ActorRef<LoggingActor.Command> loggingActor,
+                         RecipeStore store) {
         super(context);
+        this.timers = timers;
         this.llmActor = llmActor;
         this.loggingActor = loggingActor;
+        this.store = store;
+
+        // Akka keeps a single adapter per message class, so create it once and
+        // route responses by the request ID they carry instead of by closure
+        this.llmResponseAdapter = context.messageAdapter(LLMActor.Response.class, WrappedLLMResponse::new);
+
+        Metrics.gauge("cooking_cache_hit_ratio", "Share of lookups answered by the cache or the store", () -> {
+            double hits = cacheHits.get() + storeHits.get();
+            double lookups = hits + cacheMisses.get();
+            return lookups == 0 ? 0.0 : hits / lookups;
+        });
     }
 
     @Override
@@ -94,7 +304,12 @@ public class RecipeFinder extends AbstractBehavior<RecipeFinder.Command> {
                 .onMessage(FindRecipe.class, this::onFindRecipe)
                 .onMessage(FindRecipeWithAsk.class, this::onFindRecipeWithAsk)
                 .onMessage(ForwardToLLM.class, this::onForwardToLLM)
+                .onMessage(FindRecipeStreaming.class, this::onFindRecipeStreaming)
+                .onMessage(LookupRecipe.class, this::onLookupRecipe)
+                .onMessage(GenerateRecipe.class, this::onGenerateRecipe)
                 .onMessage(WrappedLLMResponse.class, this::onWrappedLLMResponse)
+                .onMessageEquals(SweepTimeouts.INSTANCE, this::onSweepTimeouts)
+                .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
@@ -102,46 +317,32 @@ public class RecipeFinder extends AbstractBehavior<RecipeFinder.Command> {
     private Behavior<Command> onFindRecipe(FindRecipe command) {
         getContext().getLog().info("📤 TELL PATTERN: Processing recipe request");
 
-        // Create adapter to convert LLMActor.Response to our internal command
-        ActorRef<LLMActor.Response> responseAdapter =
-                getContext().messageAdapter(LLMActor.Response.class,
-                        response -> new WrappedLLMResponse(response, command.replyTo, "tell"));
+        if (answerFromCache(command.request, command.replyTo, null, "tell")) {
+            return this;
+        }
+
+        long waiterId = register(command.request, command.replyTo, null, "tell", NO_DEADLINE);
 
-        // Send to LLM actor using tell
-        llmActor.tell(new LLMActor.ProcessRecipeRequest(command.request, responseAdapter));
+        // Send to LLM actor using tell; the reply comes back through the shared adapter
+        dispatch(waiterId, command.request, false);
 
         return this;
     }
 
-    // PATTERN 2: ASK (Request-Response with Future)
+    // PATTERN 2: ASK (Request-Response with timeout)
     private Behavior<Command> onFindRecipeWithAsk(FindRecipeWithAsk command) {
         getContext().getLog().info("❓ ASK PATTERN: Processing recipe request with ask");
 
-        // Use ask pattern with timeout
-        Duration timeout = Duration.ofSeconds(30);
-
-        CompletionStage<LLMActor.Response> future =
-                AskPattern.ask(
-                        llmActor,
-                        (ActorRef<LLMActor.Response> replyTo) ->
-                                new LLMActor.ProcessRecipeRequest(command.request, replyTo),
-                        timeout,
-                        getContext().getSystem().scheduler()
-                );
-
-        // Handle the future response
-        getContext().pipeToSelf(future, (response, failure) -> {
-            if (failure != null) {
-                getContext().getLog().error("Ask pattern failed", failure);
-                return new WrappedLLMResponse(
-                        new LLMActor.RecipeError("Ask pattern failed: " + failure.getMessage()),
-                        command.replyTo,
-                        "ask"
-                );
-            } else {
-                return new WrappedLLMResponse(response, command.replyTo, "ask");
-            }
-        });
+        if (answerFromCache(command.request, command.replyTo, null, "ask")) {
+            return this;
+        }
+
+        // Same request-response contract as AskPattern.ask, but without a temporary
+        // actor per request: the timeout is enforced by the pending-table sweep
+        long deadline = System.nanoTime() + ASK_TIMEOUT.toNanos();
+        long waiterId = register(command.request, command.replyTo, null, "ask", deadline);
+
+        dispatch(waiterId, command.request, false);
 
         return this;
     }
@@ -150,13 +351,15 @@ public class RecipeFinder extends AbstractBehavior<RecipeFinder.Command> {
     private Behavior<Command> onForwardToLLM(ForwardToLLM command) {
         getContext().getLog().info("↪️ FORWARD PATTERN: Forwarding to LLM with original sender preserved");
 
-        // Create a special adapter that preserves the original sender
-        ActorRef<LLMActor.Response> forwardAdapter =
-                getContext().messageAdapter(LLMActor.Response.class,
-                        response -> new WrappedLLMResponse(response, command.originalSender, "forward"));
+        if (answerFromCache(command.request, command.originalSender, null, "forward")) {
+            return this;
+        }
+
+        // The original sender is kept in the pending table under this request's ID
+        long waiterId = register(command.request, command.originalSender, null, "forward", NO_DEADLINE);
 
         // Send to LLM actor
-        llmActor.tell(new LLMActor.ProcessRecipeRequest(command.request, forwardAdapter));
+        dispatch(waiterId, command.request, false);
 
         // Log that we're forwarding
         getContext().getLog().info("Message forwarded to LLM, original sender will receive response");
@@ -164,38 +367,493 @@ public class RecipeFinder extends AbstractBehavior<RecipeFinder.Command> {
         return this;
     }
 
-    // Handle wrapped LLM responses
+    // STREAMING: relay chunks to the requester as the LLM produces them
+    private Behavior<Command> onFindRecipeStreaming(FindRecipeStreaming command) {
+        getContext().getLog().info("🌊 STREAMING: Processing recipe request with token streaming");
+
+        if (answerFromCache(command.request, command.replyTo, command.chunkReplyTo, "stream")) {
+            return this;
+        }
+
+        long waiterId = register(command.request, command.replyTo, command.chunkReplyTo, "stream", NO_DEADLINE);
+
+        dispatch(waiterId, command.request, true);
+
+        return this;
+    }
+
+    // PIPELINE: the RecipePipeline's lookup stage
+    private Behavior<Command> onLookupRecipe(LookupRecipe command) {
+        if (!answerFromCache(command.request, command.replyTo, null, "pipeline")) {
+            command.replyTo.tell(new RecipeResponse(null, "pipeline (miss)"));
+        }
+        return this;
+    }
+
+    // PIPELINE: the RecipePipeline's generation stage; the cache was checked by the lookup
+    // stage, so a second check would only count the same miss twice
+    private Behavior<Command> onGenerateRecipe(GenerateRecipe command) {
+        long deadline = System.nanoTime() + ASK_TIMEOUT.toNanos();
+        long waiterId = register(command.request, command.replyTo, command.chunkReplyTo, "pipeline", deadline);
+
+        dispatch(waiterId, command.request, command.chunkReplyTo != null);
+
+        return this;
+    }
+
+    // Handle wrapped LLM responses; each one is fanned out to every waiter on the flight
     private Behavior<Command> onWrappedLLMResponse(WrappedLLMResponse wrapped) {
-        if (wrapped.response instanceof LLMActor.RecipeResponse) {
+        if (wrapped.response instanceof LLMActor.RecipeChunk) {
+            LLMActor.RecipeChunk chunk = (LLMActor.RecipeChunk) wrapped.response;
+            Flight flight = flights.get(chunk.requestId);
+            if (flight == null) {
+                return this;
+            }
+            String text = chunk.text;
+            if (flight.alreadyStreamed > 0) {
+                // A restarted generation: skip what the waiters saw before the first one expired
+                int skipped = Math.min(flight.alreadyStreamed, text.length());
+                flight.alreadyStreamed -= skipped;
+                text = text.substring(skipped);
+                if (text.isEmpty()) {
+                    return this;
+                }
+            }
+            if (flight.streamed != null) {
+                flight.streamed.append(text);
+            }
+
+            for (int i = 0; i < flight.waiterCount; i++) {
+                PendingRequest request = pending.get(flight.waiterIds[i]);
+                if (request != null && request.chunkReplyTo != null) {
+                    request.chunkReplyTo.tell(new RecipeChunk(text));
+                }
+            }
+
+        } else if (wrapped.response instanceof LLMActor.GenerationStarted) {
+            LLMActor.GenerationStarted started = (LLMActor.GenerationStarted) wrapped.response;
+            Flight flight = flights.get(started.requestId);
+            if (flight == null) {
+                return this;
+            }
+            flight.worker = started.worker;
+            if (flight.deadlineEpochMillis != flight.launchDeadlineEpochMillis) {
+                // Waiters with more time joined while the request was on its way
+                flight.worker.tell(new LLMActor.ExtendDeadline(flight.flightId, llmResponseAdapter,
+                        flight.deadlineEpochMillis));
+            }
+
+        } else if (wrapped.response instanceof LLMActor.RecipeResponse) {
             LLMActor.RecipeResponse recipeResponse = (LLMActor.RecipeResponse) wrapped.response;
+            Flight flight = land(recipeResponse.requestId);
+            if (flight == null) {
+                return this;
+            }
+            recordTiming(flight, recipeResponse.timing, "success");
+
+            cache.put(flight.request, recipeResponse.response);
+            cacheEntries.set(cache.size());
+            persist(flight.request, recipeResponse.response);
 
             // Log the recipe
-            loggingActor.tell(new LoggingActor.LogRecipeRequest(
-                    new RecipeRequest("logged", "none", false),
-                    recipeResponse.response
-            ));
+            loggingActor.tell(new LoggingActor.LogRecipeRequest(flight.request, recipeResponse.response));
+
+            for (int i = 0; i < flight.waiterCount; i++) {
+                PendingRequest request = complete(flight.waiterIds[i]);
+                if (request == null) {
+                    continue;
+                }
+                if (!flight.streaming && request.chunkReplyTo != null) {
+                    // A streaming request that joined a non-streaming generation gets the recipe as one chunk
+                    request.chunkReplyTo.tell(new RecipeChunk(recipeResponse.response));
+                }
+
+                // Send response back to original sender
+                request.replyTo.tell(new RecipeResponse(
+                        recipeResponse.response,
+                        request.processingMethod
+                ));
+                requestTimer(request.processingMethod, "llm").recordSince(request.startNanos);
+
+                getContext().getLog().info("✅ {} pattern completed successfully",
+                        request.processingMethod.toUpperCase());
+            }
 
-            // Send response back to original sender
-            wrapped.originalSender.tell(new RecipeResponse(
-                    recipeResponse.response,
-                    wrapped.processingMethod
-            ));
+        } else if (wrapped.response instanceof LLMActor.RecipeStream) {
+            collect((LLMActor.RecipeStream) wrapped.response);
 
-            getContext().getLog().info("✅ {} pattern completed successfully",
-                    wrapped.processingMethod.toUpperCase());
+        } else if (wrapped.response instanceof LLMActor.RecipeExpired) {
+            LLMActor.RecipeExpired expired = (LLMActor.RecipeExpired) wrapped.response;
+            Flight flight = land(expired.requestId);
+            if (flight == null) {
+                return this;
+            }
+            recordTiming(flight, expired.timing, "expired");
+            relaunchForLiveWaiters(flight);
 
         } else if (wrapped.response instanceof LLMActor.RecipeError) {
             LLMActor.RecipeError error = (LLMActor.RecipeError) wrapped.response;
+            Flight flight = land(error.requestId);
+            if (flight == null) {
+                return this;
+            }
+            recordTiming(flight, error.timing, "error");
+
+            for (int i = 0; i < flight.waiterCount; i++) {
+                PendingRequest request = complete(flight.waiterIds[i]);
+                if (request == null) {
+                    continue;
+                }
+
+                request.replyTo.tell(new RecipeResponse(
+                        "Error: " + error.error,
+                        request.processingMethod + " (failed)"
+                ));
+                requestTimer(request.processingMethod, "error").recordSince(request.startNanos);
+
+                getContext().getLog().error("❌ {} pattern failed: {}",
+                        request.processingMethod.toUpperCase(), error.error);
+            }
+        }
+
+        return this;
+    }
+
+    // Reads a chunked recipe and handles it again as the RecipeResponse (or RecipeError) it stands for
+    private void collect(LLMActor.RecipeStream stream) {
+        if (!flights.containsKey(stream.requestId)) {
+            // Nobody waits for it any more; let the sender stop at once instead of at its timeout
+            stream.chunks.getSource().runWith(Sink.cancelled(), getContext().getSystem());
+            return;
+        }
+        getContext().pipeToSelf(
+                stream.chunks.getSource().runWith(Sink.seq(), getContext().getSystem()),
+                (chunks, failure) -> new WrappedLLMResponse(failure == null
+                        ? new LLMActor.RecipeResponse(stream.requestId, String.join("", chunks), stream.timing)
+                        : new LLMActor.RecipeError(stream.requestId,
+                                "Recipe stream failed: " + failure.getMessage(), stream.timing)));
+    }
 
-            wrapped.originalSender.tell(new RecipeResponse(
-                    "Error: " + error.error,
-                    wrapped.processingMethod + " (failed)"
+    private Behavior<Command> onSweepTimeouts() {
+        long now = System.nanoTime();
+        int[] expiredCount = {0};
+
+        pending.forEach((requestId, request) -> {
+            if (request.deadlineNanos != NO_DEADLINE && request.deadlineNanos - now <= 0) {
+                if (expiredCount[0] == expiredBuffer.length) {
+                    expiredBuffer = Arrays.copyOf(expiredBuffer, expiredBuffer.length * 2);
+                }
+                expiredBuffer[expiredCount[0]++] = requestId;
+            }
+        });
+
+        for (int i = 0; i < expiredCount[0]; i++) {
+            PendingRequest request = complete(expiredBuffer[i]);
+            getContext().getLog().error("{} request failed: no response within {}",
+                    request.processingMethod, ASK_TIMEOUT);
+            request.replyTo.tell(new RecipeResponse(
+                    "Error: " + request.processingMethod + " request failed: timed out after "
+                            + ASK_TIMEOUT.getSeconds() + "s",
+                    request.processingMethod + " (failed)"
             ));
+            requestTimer(request.processingMethod, "timeout").recordSince(request.startNanos);
+        }
+
+        expireLostFlights(now);
+        stopSweepIfIdle();
+        return this;
+    }
+
+    // A generation whose LLM request or reply was lost (full worker mailbox, no routees yet,
+    // worker node gone) would otherwise hold its waiters, and every later equal request, forever
+    private void expireLostFlights(long now) {
+        int[] expiredCount = {0};
+        flights.forEach((flightId, flight) -> {
+            if (flight.expiresAtNanos - now <= 0) {
+                if (expiredCount[0] == expiredBuffer.length) {
+                    expiredBuffer = Arrays.copyOf(expiredBuffer, expiredBuffer.length * 2);
+                }
+                expiredBuffer[expiredCount[0]++] = flightId;
+            }
+        });
 
-            getContext().getLog().error("❌ {} pattern failed: {}",
-                    wrapped.processingMethod.toUpperCase(), error.error);
+        for (int i = 0; i < expiredCount[0]; i++) {
+            Flight flight = land(expiredBuffer[i]);
+            getContext().getLog().error("⌛ Generation {} got no reply within {}, failing {} waiters",
+                    flight.flightId, FLIGHT_TIMEOUT, flight.waiterCount);
+
+            for (int w = 0; w < flight.waiterCount; w++) {
+                PendingRequest request = complete(flight.waiterIds[w]);
+                if (request == null) {
+                    continue;
+                }
+                request.replyTo.tell(new RecipeResponse(
+                        "Error: no reply from the LLM workers within " + FLIGHT_TIMEOUT.getSeconds() + "s",
+                        request.processingMethod + " (failed)"
+                ));
+                requestTimer(request.processingMethod, "lost").recordSince(request.startNanos);
+            }
         }
+    }
 
+    private Behavior<Command> onPostStop() {
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                getContext().getLog().warn("Failed to close recipe store: {}", e.getMessage());
+            }
+        }
         return this;
     }
-}
\ No newline at end of file
+
+    // Replies from the cache, or from the persistent store below it; returns false on a miss
+    private boolean answerFromCache(RecipeRequest request,
+                                    ActorRef<RecipeResponse> replyTo,
+                                    ActorRef<RecipeChunk> chunkReplyTo,
+                                    String processingMethod) {
+        long start = System.nanoTime();
+        String recipe = cache.get(request);
+        String source = "cached";
+
+        if (recipe == null && store != null) {
+            try {
+                recipe = store.get(request);
+            } catch (IOException e) {
+                getContext().getLog().warn("Recipe store read failed: {}", e.getMessage());
+            }
+            if (recipe == null) {
+                cacheMisses.increment();
+                return false;
+            }
+            cache.put(request, recipe);
+            cacheEntries.set(cache.size());
+            storeHits.increment();
+            source = "stored";
+        } else if (recipe == null) {
+            cacheMisses.increment();
+            return false;
+        } else {
+            cacheHits.increment();
+        }
+
+        if (chunkReplyTo != null) {
+            chunkReplyTo.tell(new RecipeChunk(recipe));
+        }
+        loggingActor.tell(new LoggingActor.LogRecipeRequest(request, recipe));
+        replyTo.tell(new RecipeResponse(recipe, processingMethod + " (" + source + ")"));
+        requestTimer(processingMethod, source).recordSince(start);
+
+        getContext().getLog().info("💾 {} hit for {} (cache hit rate {}%, {} entries)",
+                source, request, String.format("%.1f", cache.hitRate() * 100), cache.size());
+        return true;
+    }
+
+    private void persist(RecipeRequest request, String recipe) {
+        if (store == null) {
+            return;
+        }
+
+        try {
+            if (!store.put(request, recipe)) {
+                getContext().getLog().warn("Recipe store is full or the recipe is too large, not persisted");
+            }
+        } catch (IOException e) {
+            getContext().getLog().warn("Recipe store write failed: {}", e.getMessage());
+        }
+    }
+
+    // Joins an identical generation that is already in flight, or starts a new one
+    private void dispatch(long waiterId, RecipeRequest request, boolean streaming) {
+        Flight flight = flightsByRequest.get(request);
+        if (flight != null) {
+            flight.addWaiter(waiterId);
+            PendingRequest waiter = pending.get(waiterId);
+            if (flight.streamed != null && flight.streamed.length() > 0 && waiter.chunkReplyTo != null) {
+                // Joined mid-generation: catch up on what the earlier waiters have already seen
+                waiter.chunkReplyTo.tell(new RecipeChunk(flight.streamed.toString()));
+            }
+            extendDeadline(flight, waiter);
+            getContext().getLog().info("🔗 Coalesced request with in-flight generation {} ({} waiters)",
+                    flight.flightId, flight.waiterCount);
+            return;
+        }
+
+        flight = new Flight(++nextRequestId, request, streaming);
+        flight.addWaiter(waiterId);
+        launch(flight);
+    }
+
+    private void launch(Flight flight) {
+        flight.expiresAtNanos = System.nanoTime() + FLIGHT_TIMEOUT.toNanos();
+        flights.put(flight.flightId, flight);
+        flightsByRequest.put(flight.request, flight);
+        flightsGauge.set(flights.size());
+        startSweep();
+
+        long deadline = flightDeadline(flight);
+        flight.deadlineEpochMillis = deadline;
+        flight.launchDeadlineEpochMillis = deadline;
+        if (flight.streaming) {
+            llmActor.tell(new LLMActor.StreamRecipeRequest(flight.flightId, flight.request, llmResponseAdapter,
+                    flight.timing, deadline));
+        } else {
+            llmActor.tell(new LLMActor.ProcessRecipeRequest(flight.flightId, flight.request, llmResponseAdapter,
+                    flight.timing, deadline));
+        }
+    }
+
+    // The generation is worth finishing until the last waiter gives up. LLMActor may run on
+    // another node, so the deadline travels as wall-clock time; skew between nodes shifts it.
+    private long flightDeadline(Flight flight) {
+        long latestNanos = NO_DEADLINE;
+        for (int i = 0; i < flight.waiterCount; i++) {
+            PendingRequest request = pending.get(flight.waiterIds[i]);
+            if (request == null) {
+                continue;
+            }
+            if (request.deadlineNanos == NO_DEADLINE) {
+                return LLMActor.NO_DEADLINE;
+            }
+            if (latestNanos == NO_DEADLINE || request.deadlineNanos - latestNanos > 0) {
+                latestNanos = request.deadlineNanos;
+            }
+        }
+        return latestNanos == NO_DEADLINE ? LLMActor.NO_DEADLINE : toEpochMillis(latestNanos);
+    }
+
+    private static long toEpochMillis(long deadlineNanos) {
+        return System.currentTimeMillis() + Duration.ofNanos(deadlineNanos - System.nanoTime()).toMillis();
+    }
+
+    // A waiter that joins with more time left (or none) keeps the running generation alive for it
+    private void extendDeadline(Flight flight, PendingRequest waiter) {
+        if (flight.deadlineEpochMillis == LLMActor.NO_DEADLINE) {
+            return;
+        }
+        long deadline = waiter.deadlineNanos == NO_DEADLINE ? LLMActor.NO_DEADLINE : toEpochMillis(waiter.deadlineNanos);
+        if (deadline != LLMActor.NO_DEADLINE && deadline <= flight.deadlineEpochMillis) {
+            return;
+        }
+
+        flight.deadlineEpochMillis = deadline;
+        // Before GenerationStarted the worker is unknown; the extension is sent when it arrives
+        if (flight.worker != null) {
+            flight.worker.tell(new LLMActor.ExtendDeadline(flight.flightId, llmResponseAdapter, deadline));
+        }
+    }
+
+    // Only a generation the extension reached too late, or one that expired still queued, ends up
+    // here: waiters with time left get a fresh generation that picks up where their stream stopped.
+    // Timed-out waiters are left to the sweep.
+    private void relaunchForLiveWaiters(Flight expired) {
+        long now = System.nanoTime();
+        Flight flight = null;
+        for (int i = 0; i < expired.waiterCount; i++) {
+            PendingRequest request = pending.get(expired.waiterIds[i]);
+            if (request == null || (request.deadlineNanos != NO_DEADLINE && request.deadlineNanos - now <= 0)) {
+                continue;
+            }
+            if (flight == null) {
+                flight = new Flight(++nextRequestId, expired.request, expired.streaming,
+                        expired.streaming ? expired.streamed.toString() : "");
+            }
+            flight.addWaiter(expired.waiterIds[i]);
+        }
+
+        if (flight == null) {
+            getContext().getLog().warn("⌛ Generation {} expired, nobody is waiting for it", expired.flightId);
+            return;
+        }
+        getContext().getLog().info("⌛ Generation {} expired, restarting as {} for {} waiters",
+                expired.flightId, flight.flightId, flight.waiterCount);
+        launch(flight);
+    }
+
+    // The reply carries the worker's copy of the timing, which differs from ours when it crossed nodes
+    private void recordTiming(Flight flight, RequestTiming returned, String outcome) {
+        RequestTiming timing = returned != null ? returned : flight.timing;
+        timing.returned();
+
+        for (RequestTiming.Stage stage : RequestTiming.Stage.values()) {
+            STAGE_TIMERS[stage.ordinal()].record(timing.stageNanos(stage));
+        }
+
+        flight.event.end();
+        if (flight.event.shouldCommit()) {
+            flight.event.requestId = flight.flightId;
+            flight.event.outcome = outcome;
+            flight.event.waiters = flight.waiterCount;
+            flight.event.setStages(timing);
+            flight.event.commit();
+        }
+        getContext().getLog().debug("⏱️ {}", timing);
+    }
+
+    // Removes a finished flight so new requests start a fresh generation
+    private Flight land(long flightId) {
+        Flight flight = flights.remove(flightId);
+        if (flight == null) {
+            getContext().getLog().debug("Ignoring response for unknown generation {}", flightId);
+            return null;
+        }
+
+        flightsByRequest.remove(flight.request);
+        flightsGauge.set(flights.size());
+        stopSweepIfIdle();
+        return flight;
+    }
+
+    private long register(RecipeRequest request,
+                          ActorRef<RecipeResponse> replyTo,
+                          ActorRef<RecipeChunk> chunkReplyTo,
+                          String processingMethod,
+                          long deadlineNanos) {
+        long requestId = ++nextRequestId;
+        pending.put(requestId, new PendingRequest(request, replyTo, chunkReplyTo, processingMethod,
+                System.nanoTime(), deadlineNanos));
+        pendingGauge.set(pending.size());
+
+        if (deadlineNanos != NO_DEADLINE) {
+            pendingWithDeadline++;
+            startSweep();
+        }
+        return requestId;
+    }
+
+    // Removes a waiter from the pending table; null means it already timed out
+    private PendingRequest complete(long requestId) {
+        PendingRequest request = pending.remove(requestId);
+        if (request == null) {
+            getContext().getLog().debug("Request {} already timed out, dropping its response", requestId);
+            return null;
+        }
+        pendingGauge.set(pending.size());
+
+        if (request.deadlineNanos != NO_DEADLINE) {
+            pendingWithDeadline--;
+            stopSweepIfIdle();
+        }
+        return request;
+    }
+
+    // The sweep runs while any waiter has a deadline or any generation is in flight
+    private void startSweep() {
+        if (!timers.isTimerActive(SweepTimeouts.INSTANCE)) {
+            timers.startTimerWithFixedDelay(SweepTimeouts.INSTANCE, SWEEP_INTERVAL);
+        }
+    }
+
+    private void stopSweepIfIdle() {
+        if (pendingWithDeadline == 0 && flights.isEmpty()) {
+            timers.cancel(SweepTimeouts.INSTANCE);
+        }
+    }
+
+    // End-to-end latency as seen by the requester, per pattern and outcome
+    private static Metrics.Timer requestTimer(String pattern, String outcome) {
+        return Metrics.timer("cooking_request_seconds",
+                "Time from receiving a request to replying, per pattern and outcome",
+                "pattern", pattern, "outcome", outcome);
+    }
+}
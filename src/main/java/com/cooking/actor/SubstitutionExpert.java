@@ -7,8 +7,11 @@ import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
 import com.cooking.api.OpenAIClient;
+import com.cooking.metrics.Metrics;
 import com.cooking.model.RecipeRequest;
 
+import java.util.concurrent.CompletionException;
+
 public class SubstitutionExpert extends AbstractBehavior<SubstitutionExpert.Command> {
     public interface Command {}
 
@@ -30,6 +33,19 @@ public class SubstitutionExpert extends AbstractBehavior<SubstitutionExpert.Comm
         }
     }
 
+    // Internal message carrying the outcome of an async AI call back into the actor
+    private static final class SubstitutionsCompleted implements Command {
+        public final ActorRef<SubstitutionResponse> replyTo;
+        public final String response;
+        public final Throwable failure;
+
+        public SubstitutionsCompleted(ActorRef<SubstitutionResponse> replyTo, String response, Throwable failure) {
+            this.replyTo = replyTo;
+            this.response = response;
+            this.failure = failure;
+        }
+    }
+
     private final OpenAIClient aiClient;
 
     private SubstitutionExpert(ActorContext<Command> context, OpenAIClient aiClient) {
@@ -39,13 +55,15 @@ public class SubstitutionExpert extends AbstractBehavior<SubstitutionExpert.Comm
     }
 
     public static Behavior<Command> create(OpenAIClient aiClient) {
-        return Behaviors.setup(context -> new SubstitutionExpert(context, aiClient));
+        return Metrics.timed("substitutionExpert", Command.class,
+                Behaviors.setup(context -> new SubstitutionExpert(context, aiClient)));
     }
 
     @Override
     public Receive<Command> createReceive() {
         return newReceiveBuilder()
                 .onMessage(FindSubstitutions.class, this::onFindSubstitutions)
+                .onMessage(SubstitutionsCompleted.class, this::onSubstitutionsCompleted)
                 .build();
     }
 
@@ -54,10 +72,8 @@ public class SubstitutionExpert extends AbstractBehavior<SubstitutionExpert.Comm
 
         try {
             String prompt = buildSubstitutionPrompt(msg.request);
-            String response = aiClient.generateRecipe(prompt);
-
-            getContext().getLog().info("✅ Substitutions found");
-            msg.replyTo.tell(new SubstitutionResponse(response));
+            getContext().pipeToSelf(aiClient.generateRecipeAsync(prompt),
+                    (response, failure) -> new SubstitutionsCompleted(msg.replyTo, response, failure));
 
         } catch (Exception e) {
             getContext().getLog().error("❌ Error finding substitutions: {}", e.getMessage());
@@ -66,7 +82,22 @@ public class SubstitutionExpert extends AbstractBehavior<SubstitutionExpert.Comm
         return this;
     }
 
-    private String buildSubstitutionPrompt(RecipeRequest request) {
+    private Behavior<Command> onSubstitutionsCompleted(SubstitutionsCompleted msg) {
+        if (msg.failure != null) {
+            Throwable cause = msg.failure instanceof CompletionException && msg.failure.getCause() != null
+                    ? msg.failure.getCause()
+                    : msg.failure;
+            getContext().getLog().error("❌ Error finding substitutions: {}", cause.getMessage());
+            msg.replyTo.tell(new SubstitutionResponse("Error finding substitutions: " + cause.getMessage()));
+        } else {
+            getContext().getLog().info("✅ Substitutions found");
+            msg.replyTo.tell(new SubstitutionResponse(msg.response));
+        }
+        return this;
+    }
+
+    // Package-private for the prompt benchmarks
+    static String buildSubstitutionPrompt(RecipeRequest request) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("Provide ingredient substitutions for this recipe: ").append(request.getQuery());
 
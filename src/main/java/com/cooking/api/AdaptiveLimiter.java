@@ -0,0 +1,212 @@
+package com.cooking.api;
+
+import com.cooking.util.ConfigLoader;
+
+/**
+ * Concurrency limit that follows the backend instead of a hand-tuned number.
+ *
+ * <p>{@code gradient} (the default) compares a short-term latency average with the
+ * backend's no-load latency: while they agree the limit grows by about sqrt(limit), and
+ * once requests start queueing inside the backend the short-term latency rises and the
+ * limit shrinks in proportion. The no-load latency is only learned while the backend is
+ * lightly loaded, so it does not drift up along with the queueing it is meant to detect;
+ * every {@code probe-interval} samples the limit drops to about sqrt(limit) to measure it
+ * again, which is how a switch to a slower or faster model is picked up.
+ *
+ * <p>{@code aimd} adds one per successful sample and multiplies by {@code backoff} on a
+ * failure. {@code fixed} never moves from {@code initial}.
+ *
+ * <p>Thread-safe; one instance is shared by all callers of a backend on a node.
+ */
+public final class AdaptiveLimiter {
+    public enum Algorithm { GRADIENT, AIMD, FIXED }
+
+    // Weight of each sample in the short-term average (roughly the last 10 requests)
+    private static final double SHORT_ALPHA = 0.2;
+    // How fast the limit follows the computed target
+    private static final double SMOOTHING = 0.2;
+
+    private final Algorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double baselineAlpha;
+    private final double backoff;
+    private final int probeInterval;
+    private final int initialLimit;
+    private final int baselineWindow;
+
+    private double limit;
+    private int inFlight = 0;
+    private double shortRttNanos = 0.0;
+    private double noLoadRttNanos = 0.0;
+    private int samplesSinceProbe = 0;
+    // While probing: calls started before the drop that must finish before sampling (-1 = still draining)
+    private int probeSkip = 0;
+    private boolean probing = false;
+
+    public AdaptiveLimiter(Algorithm algorithm, int initialLimit, int minLimit, int maxLimit,
+                           double tolerance, int baselineWindow, double backoff, int probeInterval) {
+        this.algorithm = algorithm;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tolerance = tolerance;
+        this.baselineAlpha = 2.0 / (Math.max(1, baselineWindow) + 1);
+        this.backoff = backoff;
+        this.probeInterval = Math.max(1, probeInterval);
+        this.initialLimit = initialLimit;
+        this.baselineWindow = baselineWindow;
+        this.limit = clamp(initialLimit);
+    }
+
+    /**
+     * A fresh limiter with the same settings, for another backend or model.
+     */
+    public AdaptiveLimiter copy() {
+        return new AdaptiveLimiter(algorithm, initialLimit, minLimit, maxLimit, tolerance,
+                baselineWindow, backoff, probeInterval);
+    }
+
+    /**
+     * Limiter for {@code backend} from cooking.llm-pool.&lt;backend&gt;.limit, falling back to
+     * cooking.llm-pool.limit. The maximum defaults to {@code capacity}, the pool's fixed bound.
+     */
+    public static AdaptiveLimiter fromConfig(String backend, int capacity) {
+        return new AdaptiveLimiter(
+                parseAlgorithm(ConfigLoader.getLlmLimitAlgorithm(backend)),
+                ConfigLoader.getLlmLimitInt(backend, "initial", Math.min(4, capacity)),
+                ConfigLoader.getLlmLimitInt(backend, "min", 1),
+                ConfigLoader.getLlmLimitInt(backend, "max", capacity),
+                ConfigLoader.getLlmLimitDouble(backend, "tolerance", 1.5),
+                ConfigLoader.getLlmLimitInt(backend, "baseline-window", 20),
+                ConfigLoader.getLlmLimitDouble(backend, "backoff", 0.9),
+                ConfigLoader.getLlmLimitInt(backend, "probe-interval", 500));
+    }
+
+    static Algorithm parseAlgorithm(String name) {
+        try {
+            return Algorithm.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown concurrency limit algorithm: " + name);
+        }
+    }
+
+    public Algorithm algorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Takes a slot if fewer than {@link #limit()} calls are in flight. Every successful
+     * acquire must be followed by exactly one of onSuccess, onDropped or onIgnore.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * The call finished normally after {@code rttNanos}; feeds the latency estimate.
+     */
+    public synchronized void onSuccess(long rttNanos) {
+        // Only a backend kept reasonably busy tells us anything about its capacity
+        boolean saturated = inFlight * 2 >= limit;
+        inFlight--;
+
+        switch (algorithm) {
+            case GRADIENT:
+                sampleGradient(rttNanos, saturated);
+                break;
+            case AIMD:
+                if (saturated) {
+                    limit = clamp(limit + 1.0);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * The call failed (timeout, overload, connection error): back off multiplicatively.
+     */
+    public synchronized void onDropped() {
+        inFlight--;
+        if (algorithm != Algorithm.FIXED) {
+            limit = clamp(limit * backoff);
+        }
+    }
+
+    /**
+     * The call ended without a meaningful sample (e.g. the caller cancelled it).
+     */
+    public synchronized void onIgnore() {
+        inFlight--;
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private void sampleGradient(long rttNanos, boolean saturated) {
+        if (probing) {
+            // Calls started before the drop still ran at the old concurrency: let them finish first
+            if (probeSkip < 0) {
+                if (inFlight >= limit) {
+                    return;
+                }
+                probeSkip = inFlight;
+            }
+            if (probeSkip-- > 0) {
+                return;
+            }
+            probing = false;
+            shortRttNanos = 0.0;
+        }
+        if (shortRttNanos == 0.0) {
+            shortRttNanos = rttNanos;
+            noLoadRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_ALPHA;
+
+        if (++samplesSinceProbe >= probeInterval) {
+            // Few enough calls that the backend should not queue, so the next sample is its no-load latency
+            samplesSinceProbe = 0;
+            probing = true;
+            probeSkip = -1;
+            limit = clamp(Math.sqrt(limit));
+            return;
+        }
+
+        if (!saturated || limit <= minLimit) {
+            // Little or no queueing in the backend: this latency is its no-load latency
+            noLoadRttNanos += (rttNanos - noLoadRttNanos) * baselineAlpha;
+        } else {
+            noLoadRttNanos = Math.min(noLoadRttNanos, shortRttNanos);
+        }
+        if (!saturated) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * noLoadRttNanos / shortRttNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1.0 - SMOOTHING) + target * SMOOTHING);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s limit %d (%d in flight, range %d-%d)",
+                algorithm.name().toLowerCase(), (int) limit, inFlight, minLimit, maxLimit);
+    }
+}
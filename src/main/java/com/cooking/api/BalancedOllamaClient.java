@@ -0,0 +1,289 @@
+package com.cooking.api;
+
+import com.cooking.metrics.Metrics;
+import com.cooking.metrics.RequestTiming;
+import com.cooking.util.ConfigLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Spreads calls over several Ollama servers (cooking.ollama.endpoints).
+ *
+ * <p>Each call picks two healthy endpoints at random and uses the one with the lower
+ * cost, its peak-EWMA latency times (in-flight calls + 1). The latency average decays
+ * over {@code decay-time}, also while no calls go there, but jumps straight to a slower
+ * sample, so a server that starts to queue is avoided at once and gently retried once
+ * it recovers.
+ *
+ * <p>Health is judged passively from real calls: {@code failure-threshold} failures in a
+ * row eject an endpoint for {@code ejection-time}. Once that runs out the endpoint gets
+ * calls again, and a single failure ejects it for twice as long (up to 16 times
+ * {@code ejection-time}). If every endpoint is ejected, all of them are used again.
+ */
+public class BalancedOllamaClient extends OpenAIClient {
+    private static final Logger log = LoggerFactory.getLogger(BalancedOllamaClient.class);
+    private static final int MAX_EJECTIONS = 5;
+
+    private final Endpoint[] endpoints;
+    private final long decayNanos;
+    private final int failureThreshold;
+    private final long ejectionNanos;
+
+    public BalancedOllamaClient(List<String> urls, String model) {
+        super(model);
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one Ollama endpoint is required");
+        }
+        this.decayNanos = ConfigLoader.getOllamaBalancerDecayTime().toNanos();
+        this.failureThreshold = ConfigLoader.getOllamaBalancerFailureThreshold();
+        this.ejectionNanos = ConfigLoader.getOllamaBalancerEjectionTime().toNanos();
+        this.endpoints = new Endpoint[urls.size()];
+        for (int i = 0; i < endpoints.length; i++) {
+            endpoints[i] = new Endpoint(new OllamaClient(urls.get(i), model));
+        }
+    }
+
+    @Override
+    public String getBackendName() {
+        return "ollama";
+    }
+
+    @Override
+    public int getEndpointCount() {
+        return endpoints.length;
+    }
+
+    /**
+     * Healthy as long as one endpoint is; the balancer routes around the rest.
+     */
+    @Override
+    public CompletionStage<Void> checkHealth() {
+        CompletableFuture<Void> healthy = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(endpoints.length);
+        for (Endpoint endpoint : endpoints) {
+            endpoint.client.checkHealth().whenComplete((ok, failure) -> {
+                if (failure == null) {
+                    healthy.complete(null);
+                } else if (pending.decrementAndGet() == 0) {
+                    healthy.completeExceptionally(failure);
+                }
+            });
+        }
+        return healthy;
+    }
+
+    /**
+     * Loads the model on every endpoint, so whichever the balancer picks is warm.
+     */
+    @Override
+    public CompletionStage<Void> warmUp(Duration keepAlive) {
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[endpoints.length];
+        for (int i = 0; i < endpoints.length; i++) {
+            loads[i] = endpoints[i].client.warmUp(keepAlive).toCompletableFuture();
+        }
+        return CompletableFuture.allOf(loads);
+    }
+
+    @Override
+    public String generateRecipe(String prompt) throws IOException {
+        Endpoint endpoint = choose();
+        long start = endpoint.started();
+        try {
+            String recipe = endpoint.client.generateRecipe(prompt);
+            endpoint.succeeded(start);
+            return recipe;
+        } catch (IOException | RuntimeException e) {
+            endpoint.failed();
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt) {
+        return generateRecipeAsync(prompt, RequestTiming.NONE);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+        return balanced(client -> client.generateRecipeAsync(prompt, timing));
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken) {
+        return generateRecipeStreaming(prompt, onToken, RequestTiming.NONE);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                           RequestTiming timing) {
+        return balanced(client -> client.generateRecipeStreaming(prompt, onToken, timing));
+    }
+
+    private CompletableFuture<String> balanced(Function<OllamaClient, CompletionStage<String>> call) {
+        Endpoint endpoint = choose();
+        long start = endpoint.started();
+        CompletableFuture<String> result;
+        try {
+            result = call.apply(endpoint.client).toCompletableFuture();
+        } catch (RuntimeException e) {
+            endpoint.failed();
+            throw e;
+        }
+
+        // Returned as is, so cancelling it still reaches the endpoint's HTTP stream
+        result.whenComplete((recipe, failure) -> {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause()
+                    : failure;
+            if (cause == null) {
+                endpoint.succeeded(start);
+            } else if (cause instanceof CancellationException) {
+                endpoint.cancelled();
+            } else {
+                endpoint.failed();
+            }
+        });
+        return result;
+    }
+
+    // Power of two choices over the healthy endpoints
+    private Endpoint choose() {
+        long now = System.nanoTime();
+        List<Endpoint> candidates = new ArrayList<>(endpoints.length);
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isHealthy(now)) {
+                candidates.add(endpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            // Everything looks down; better to try than to fail every call
+            candidates = List.of(endpoints);
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Endpoint a = candidates.get(first);
+        Endpoint b = candidates.get(second);
+        return a.cost() <= b.cost() ? a : b;
+    }
+
+    /**
+     * One Ollama server with its load and health.
+     */
+    private final class Endpoint {
+        final OllamaClient client;
+        final String url;
+        private int inFlight = 0;
+        private double latencyNanos = 0.0;
+        private long lastSampleNanos;
+        private int consecutiveFailures = 0;
+        private int ejections = 0;
+        private long ejectedUntilNanos = 0L;
+        private boolean ejected = false;
+
+        Endpoint(OllamaClient client) {
+            this.client = client;
+            this.url = client.getUrl();
+            this.lastSampleNanos = System.nanoTime();
+
+            String model = client.getModel();
+            Metrics.gauge("cooking_ollama_endpoint_in_flight", "Calls in flight per Ollama endpoint",
+                    this::inFlight, "endpoint", url, "model", model);
+            Metrics.gauge("cooking_ollama_endpoint_latency_seconds", "Peak-EWMA latency per Ollama endpoint",
+                    () -> latency() / 1e9, "endpoint", url, "model", model);
+            Metrics.gauge("cooking_ollama_endpoint_healthy", "1 unless the endpoint is ejected",
+                    () -> isHealthy(System.nanoTime()) ? 1 : 0, "endpoint", url, "model", model);
+        }
+
+        synchronized long started() {
+            inFlight++;
+            return System.nanoTime();
+        }
+
+        synchronized void succeeded(long startNanos) {
+            inFlight--;
+            long now = System.nanoTime();
+            long rtt = now - startNanos;
+            if (latencyNanos == 0.0 || rtt > decayedLatency(now)) {
+                // Peak sensitive: a slower sample counts in full straight away
+                latencyNanos = rtt;
+            } else {
+                double weight = Math.exp(-(double) (now - lastSampleNanos) / decayNanos);
+                latencyNanos = latencyNanos * weight + rtt * (1.0 - weight);
+            }
+            lastSampleNanos = now;
+
+            consecutiveFailures = 0;
+            if (ejected) {
+                ejected = false;
+                ejections = 0;
+                log.info("✅ Ollama endpoint {} is answering again", url);
+            }
+        }
+
+        synchronized void failed() {
+            inFlight--;
+            // After an ejection the first result decides; otherwise wait for a run of failures
+            if (!ejected && ++consecutiveFailures < failureThreshold) {
+                return;
+            }
+            consecutiveFailures = 0;
+            ejections = Math.min(ejections + 1, MAX_EJECTIONS);
+            ejected = true;
+            ejectedUntilNanos = System.nanoTime() + ejectionNanos * (1L << (ejections - 1));
+            log.warn("⚠️ Ollama endpoint {} is failing, ejected for {}s",
+                    url, Duration.ofNanos(ejectedUntilNanos - System.nanoTime()).getSeconds());
+        }
+
+        synchronized void cancelled() {
+            inFlight--;
+        }
+
+        synchronized boolean isHealthy(long now) {
+            // Once the ejection has run out, calls go there again; the next result decides
+            return !ejected || now - ejectedUntilNanos >= 0;
+        }
+
+        synchronized double cost() {
+            if (latencyNanos == 0.0) {
+                // Unmeasured: worth one call to learn its latency, but not all of them
+                return inFlight == 0 ? 0.0 : Double.MAX_VALUE;
+            }
+            return decayedLatency(System.nanoTime()) * (inFlight + 1);
+        }
+
+        // An endpoint avoided after one slow sample would never get the samples that bring
+        // its average down, so the average also decays with the time since the last one
+        private double decayedLatency(long now) {
+            return latencyNanos * Math.exp(-(double) (now - lastSampleNanos) / decayNanos);
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+
+        synchronized double latency() {
+            return decayedLatency(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.cooking.api;
+
+import com.cooking.metrics.Metrics;
+import com.cooking.util.ConfigLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead for blocking backend I/O: OkHttp's calls and the blocking helpers of the
+ * clients run here instead of on Akka's dispatchers or on ad-hoc threads, so a slow
+ * backend can tie up at most {@code max-concurrent} threads and never starves actors
+ * or cluster gossip.
+ *
+ * <p>Configured by cooking.blocking-io: {@code mode = pool} is a fixed pool of platform
+ * threads; {@code mode = virtual} runs each task on a virtual thread (Java 21+, falling
+ * back to the pool on older JVMs) with the same concurrency bound. Up to
+ * {@code queue-capacity} further tasks wait; beyond that tasks are rejected.
+ */
+public final class BlockingIoExecutor {
+    private static final Logger log = LoggerFactory.getLogger(BlockingIoExecutor.class);
+
+    private static final Metrics.Counter rejections = Metrics.counter("cooking_blocking_io_rejected_total",
+            "Blocking I/O tasks rejected because the executor and its queue were full");
+
+    private static volatile ExecutorService shared;
+
+    private BlockingIoExecutor() {}
+
+    /**
+     * The process-wide executor, created from cooking.blocking-io on first use.
+     */
+    public static ExecutorService shared() {
+        ExecutorService executor = shared;
+        if (executor == null) {
+            synchronized (BlockingIoExecutor.class) {
+                executor = shared;
+                if (executor == null) {
+                    executor = create(ConfigLoader.getBlockingIoMode(), ConfigLoader.getBlockingIoMaxConcurrent(),
+                            ConfigLoader.getBlockingIoQueueCapacity());
+                    shared = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Runs {@code task} on the shared executor. Cancelling the returned future interrupts
+     * the task if it is running. A full executor fails the future with an IOException.
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running;
+        try {
+            running = shared().submit(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IOException("Blocking I/O executor is saturated", e));
+            return result;
+        }
+
+        result.whenComplete((value, failure) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    static ExecutorService create(String mode, int maxConcurrent, int queueCapacity) {
+        if ("virtual".equals(mode)) {
+            ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+            if (virtualThreads != null) {
+                log.info("🧵 Blocking I/O on virtual threads, at most {} at once", maxConcurrent);
+                return new BoundedExecutor(virtualThreads, maxConcurrent, queueCapacity);
+            }
+            log.warn("Virtual threads need Java 21+ (running {}), using a thread pool for blocking I/O",
+                    System.getProperty("java.version"));
+        } else if (!"pool".equals(mode)) {
+            log.warn("Unknown cooking.blocking-io.mode '{}', using a thread pool", mode);
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "blocking-io-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    rejections.increment();
+                    throw new RejectedExecutionException("Blocking I/O executor is saturated");
+                });
+        pool.allowCoreThreadTimeOut(true);
+
+        Metrics.gauge("cooking_blocking_io_active", "Blocking I/O tasks running", pool::getActiveCount);
+        Metrics.gauge("cooking_blocking_io_queued", "Blocking I/O tasks waiting for a thread",
+                () -> pool.getQueue().size());
+        log.info("🧵 Blocking I/O on a pool of {} threads", maxConcurrent);
+        return pool;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() when the JVM has it; the build targets Java 11
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Bounds an unbounded executor (one virtual thread per task) to {@code maxConcurrent}
+     * running tasks. Waiting tasks hold a parked virtual thread, not a platform thread.
+     */
+    private static final class BoundedExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+        private final int maxConcurrent;
+        private final int queueCapacity;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        BoundedExecutor(ExecutorService delegate, int maxConcurrent, int queueCapacity) {
+            this.delegate = delegate;
+            this.maxConcurrent = maxConcurrent;
+            this.permits = new Semaphore(maxConcurrent);
+            this.queueCapacity = queueCapacity;
+
+            Metrics.gauge("cooking_blocking_io_active", "Blocking I/O tasks running",
+                    () -> this.maxConcurrent - permits.availablePermits());
+            Metrics.gauge("cooking_blocking_io_queued", "Blocking I/O tasks waiting for a thread", waiting::get);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (!permits.tryAcquire()) {
+                if (waiting.incrementAndGet() > queueCapacity) {
+                    waiting.decrementAndGet();
+                    rejections.increment();
+                    throw new RejectedExecutionException("Blocking I/O executor is saturated");
+                }
+                delegate.execute(() -> {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        waiting.decrementAndGet();
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    waiting.decrementAndGet();
+                    runHoldingPermit(task);
+                });
+                return;
+            }
+            try {
+                delegate.execute(() -> runHoldingPermit(task));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void runHoldingPermit(Runnable task) {
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
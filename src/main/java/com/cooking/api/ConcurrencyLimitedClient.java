@@ -0,0 +1,311 @@
+package com.cooking.api;
+
+import com.cooking.metrics.Metrics;
+import com.cooking.metrics.RequestTiming;
+import com.cooking.model.RecipeRequest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a backend client with an {@link AdaptiveLimiter}. Calls over the current limit
+ * wait here, in arrival order, for up to {@code maxWait} with at most {@code maxQueued}
+ * waiting; past that they fail with {@link LimitExceededException} instead of queueing
+ * inside the backend, where they would only slow down everything already running.
+ */
+public class ConcurrencyLimitedClient extends OpenAIClient {
+    private final OpenAIClient delegate;
+    private final AdaptiveLimiter limiter;
+    private final LongSupplier nanoClock;
+    private final int maxQueued;
+    private final Duration maxWait;
+    // Calls waiting for a slot, oldest first; guarded by itself
+    private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private final Metrics.Counter limited;
+    // One view per model tier behind the delegate, each with its own limiter
+    private final Map<OpenAIClient, ConcurrencyLimitedClient> tierViews = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitedClient(OpenAIClient delegate, AdaptiveLimiter limiter) {
+        this(delegate, limiter, System::nanoTime);
+    }
+
+    /**
+     * Rejects calls over the limit at once.
+     *
+     * @param nanoClock source of the latency samples; the simulation passes its virtual clock
+     */
+    public ConcurrencyLimitedClient(OpenAIClient delegate, AdaptiveLimiter limiter, LongSupplier nanoClock) {
+        this(delegate, limiter, nanoClock, 0, Duration.ZERO);
+    }
+
+    /**
+     * @param maxQueued calls over the limit that may wait for a slot; 0 rejects them at once
+     * @param maxWait   how long a call may wait for a slot before it is rejected
+     */
+    public ConcurrencyLimitedClient(OpenAIClient delegate, AdaptiveLimiter limiter, LongSupplier nanoClock,
+                                    int maxQueued, Duration maxWait) {
+        super(delegate.getModel());
+        this.delegate = delegate;
+        this.limiter = limiter;
+        this.nanoClock = nanoClock;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxWait = maxWait;
+
+        String backend = delegate.getBackendName();
+        String model = delegate.getModel();
+        this.limited = Metrics.counter("cooking_llm_limited_total",
+                "Calls rejected by the adaptive concurrency limit", "backend", backend, "model", model);
+        Metrics.gauge("cooking_llm_concurrency_limit",
+                "Current adaptive concurrency limit", limiter::limit, "backend", backend, "model", model);
+        Metrics.gauge("cooking_llm_limit_queued",
+                "Calls waiting for a slot under the concurrency limit", this::queued, "backend", backend, "model", model);
+    }
+
+    /**
+     * Thrown, or used to fail the returned stage, when the backend is at its concurrency limit.
+     */
+    public static final class LimitExceededException extends IOException {
+        public LimitExceededException(String backend, int limit) {
+            super(backend + " is at its concurrency limit (" + limit + ")");
+        }
+    }
+
+    public AdaptiveLimiter getLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public String getBackendName() {
+        return delegate.getBackendName();
+    }
+
+    @Override
+    public int getEndpointCount() {
+        return delegate.getEndpointCount();
+    }
+
+    @Override
+    public CompletionStage<Void> checkHealth() {
+        return delegate.checkHealth();
+    }
+
+    @Override
+    public CompletionStage<Void> warmUp(Duration keepAlive) {
+        return delegate.warmUp(keepAlive);
+    }
+
+    /**
+     * Models differ in where their knee is, so each tier the delegate routes to is limited separately.
+     */
+    @Override
+    public OpenAIClient forRequest(RecipeRequest request) {
+        OpenAIClient target = delegate.forRequest(request);
+        if (target == delegate) {
+            return this;
+        }
+        return tierViews.computeIfAbsent(target,
+                tier -> new ConcurrencyLimitedClient(tier, limiter.copy(), nanoClock, maxQueued, maxWait));
+    }
+
+    @Override
+    public String generateRecipe(String prompt) throws IOException {
+        acquire();
+        long start = nanoClock.getAsLong();
+        try {
+            String recipe = delegate.generateRecipe(prompt);
+            limiter.onSuccess(nanoClock.getAsLong() - start);
+            return recipe;
+        } catch (IOException | RuntimeException e) {
+            limiter.onDropped();
+            throw e;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt) {
+        return generateRecipeAsync(prompt, RequestTiming.NONE);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+        return limited(timing, () -> delegate.generateRecipeAsync(prompt, timing));
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken) {
+        return generateRecipeStreaming(prompt, onToken, RequestTiming.NONE);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                           RequestTiming timing) {
+        return limited(timing, () -> delegate.generateRecipeStreaming(prompt, onToken, timing));
+    }
+
+    private int queued() {
+        synchronized (waiting) {
+            return waiting.size();
+        }
+    }
+
+    // Blocks for at most maxWait until the call may start
+    private void acquire() throws IOException {
+        CompletableFuture<Void> slot = acquireAsync();
+        try {
+            slot.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            if (!slot.cancel(false) && !slot.isCompletedExceptionally()) {
+                // Granted just as we were interrupted: hand the slot on
+                limiter.onIgnore();
+                release();
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a " + getBackendName() + " slot");
+        }
+    }
+
+    // Completes once the call holds a slot, or fails with LimitExceededException. Cancelling
+    // it while still waiting gives up the place in the queue.
+    private CompletableFuture<Void> acquireAsync() {
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        synchronized (waiting) {
+            // Calls already waiting go first, so a freed slot cannot be taken by a newcomer
+            if (waiting.isEmpty() && limiter.tryAcquire()) {
+                slot.complete(null);
+                return slot;
+            }
+            if (waiting.size() >= maxQueued) {
+                limited.increment();
+                slot.completeExceptionally(new LimitExceededException(getBackendName(), limiter.limit()));
+                return slot;
+            }
+            waiting.add(slot);
+        }
+
+        CompletableFuture<Void> granted = new CompletableFuture<>();
+        slot.orTimeout(maxWait.toNanos(), TimeUnit.NANOSECONDS).whenComplete((ok, failure) -> {
+            if (failure == null) {
+                if (!granted.complete(null)) {
+                    // Cancelled by the caller as the slot came free
+                    limiter.onIgnore();
+                    release();
+                }
+                return;
+            }
+            synchronized (waiting) {
+                waiting.remove(slot);
+            }
+            if (!granted.isCancelled()) {
+                limited.increment();
+            }
+            granted.completeExceptionally(new LimitExceededException(getBackendName(), limiter.limit()));
+        });
+        granted.whenComplete((ok, failure) -> {
+            if (granted.isCancelled()) {
+                slot.cancel(false);
+            }
+        });
+        return granted;
+    }
+
+    // Hands slots freed by finished calls (or by a raised limit) to the oldest waiting calls
+    private void release() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (waiting) {
+                if (waiting.isEmpty() || !limiter.tryAcquire()) {
+                    return;
+                }
+                next = waiting.poll();
+            }
+            if (!next.complete(null)) {
+                // It timed out or was cancelled in the meantime; the slot goes back
+                limiter.onIgnore();
+            }
+        }
+    }
+
+    // Cancelling the returned stage cancels the delegate's, so deadlines still abort the HTTP call.
+    // The wait for a slot, granted or not, is charged to LIMIT_QUEUE.
+    private CompletableFuture<String> limited(RequestTiming timing, Supplier<CompletionStage<String>> call) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<Void> slot = acquireAsync();
+        result.whenComplete((recipe, failure) -> {
+            if (result.isCancelled()) {
+                slot.cancel(false);
+            }
+        });
+        slot.whenComplete((ok, refused) -> {
+            timing.lap(RequestTiming.Stage.LIMIT_QUEUE);
+            if (refused == null) {
+                start(call, result);
+            } else {
+                result.completeExceptionally(refused instanceof CompletionException && refused.getCause() != null
+                        ? refused.getCause()
+                        : refused);
+            }
+        });
+        return result;
+    }
+
+    // Runs the call in the slot just acquired
+    private void start(Supplier<CompletionStage<String>> call, CompletableFuture<String> result) {
+        if (result.isDone()) {
+            limiter.onIgnore();
+            release();
+            return;
+        }
+
+        long start = nanoClock.getAsLong();
+        CompletableFuture<String> inner;
+        try {
+            inner = call.get().toCompletableFuture();
+        } catch (RuntimeException e) {
+            limiter.onDropped();
+            release();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        inner.whenComplete((recipe, failure) -> {
+            if (failure == null) {
+                limiter.onSuccess(nanoClock.getAsLong() - start);
+                release();
+                result.complete(recipe);
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause()
+                    : failure;
+            if (cause instanceof CancellationException) {
+                limiter.onIgnore();
+            } else {
+                limiter.onDropped();
+            }
+            release();
+            result.completeExceptionally(cause);
+        });
+        result.whenComplete((recipe, failure) -> {
+            if (result.isCancelled()) {
+                inner.cancel(true);
+            }
+        });
+    }
+}
@@ -0,0 +1,394 @@
+package com.cooking.api;
+
+import akka.actor.Cancellable;
+import akka.actor.Scheduler;
+import akka.pattern.CircuitBreaker;
+import com.cooking.metrics.Metrics;
+import com.cooking.metrics.RequestTiming;
+import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.concurrent.ExecutionContext;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Primary backend (usually Ollama) with a secondary (usually OpenAI) behind it.
+ *
+ * <p>Each backend has its own Akka {@link CircuitBreaker}: after {@code max-failures}
+ * consecutive failures calls skip it until {@code reset-timeout} has passed and a trial
+ * call succeeds. A failed call is retried once on the other backend. With hedging on, a
+ * call to the primary that is still running (and, when streaming, has not produced a
+ * token) after the primary's recent p95 latency is duplicated to the secondary; the
+ * first to finish, or to stream a token, wins and the other is cancelled.
+ */
+public class FailoverClient extends OpenAIClient {
+    private static final Logger log = LoggerFactory.getLogger(FailoverClient.class);
+
+    private final Backend primary;
+    private final Backend secondary;
+    private final Scheduler scheduler;
+    private final ExecutionContext executionContext;
+    private final boolean hedging;
+    private final double hedgeQuantile;
+    private final Duration hedgeMinDelay;
+    private final int hedgeMinSamples;
+    private final Metrics.Counter hedgesSent;
+    private final Metrics.Counter hedgesWon;
+    // One view per model tier of the primary: same breakers, separate hedge latencies
+    private final Map<OpenAIClient, FailoverClient> tierViews = new ConcurrentHashMap<>();
+
+    /**
+     * @param scheduler        drives the circuit breakers and hedge timers (the actor system's)
+     * @param executionContext runs hedge timers; they only start an async call
+     */
+    public FailoverClient(OpenAIClient primary, OpenAIClient secondary,
+                          Scheduler scheduler, ExecutionContext executionContext) {
+        super(primary.getModel());
+        this.scheduler = scheduler;
+        this.executionContext = executionContext;
+        this.primary = new Backend(primary, scheduler);
+        this.secondary = new Backend(secondary, scheduler);
+        this.hedging = ConfigLoader.isHedgingEnabled();
+        this.hedgeQuantile = ConfigLoader.getHedgeQuantile();
+        this.hedgeMinDelay = ConfigLoader.getHedgeMinDelay();
+        this.hedgeMinSamples = ConfigLoader.getHedgeMinSamples();
+        this.hedgesSent = Metrics.counter("cooking_hedges_total",
+                "Hedged duplicate calls by outcome", "outcome", "sent");
+        this.hedgesWon = Metrics.counter("cooking_hedges_total",
+                "Hedged duplicate calls by outcome", "outcome", "won");
+    }
+
+    private FailoverClient(FailoverClient parent, OpenAIClient primaryTier) {
+        super(primaryTier.getModel());
+        this.scheduler = parent.scheduler;
+        this.executionContext = parent.executionContext;
+        this.primary = parent.primary.forTier(primaryTier);
+        this.secondary = parent.secondary;
+        this.hedging = parent.hedging;
+        this.hedgeQuantile = parent.hedgeQuantile;
+        this.hedgeMinDelay = parent.hedgeMinDelay;
+        this.hedgeMinSamples = parent.hedgeMinSamples;
+        this.hedgesSent = parent.hedgesSent;
+        this.hedgesWon = parent.hedgesWon;
+    }
+
+    // Starts one attempt; onToken is only used when streaming
+    private interface Call {
+        CompletionStage<String> start(OpenAIClient client, Consumer<String> onToken, RequestTiming timing);
+    }
+
+    /**
+     * Per-backend settings follow the primary, e.g. the llm-pool size.
+     */
+    @Override
+    public String getBackendName() {
+        return primary.name;
+    }
+
+    @Override
+    public int getEndpointCount() {
+        return primary.client.getEndpointCount();
+    }
+
+    /**
+     * The primary's health; the secondary is only there for when it fails.
+     */
+    @Override
+    public CompletionStage<Void> checkHealth() {
+        return primary.client.checkHealth();
+    }
+
+    @Override
+    public CompletionStage<Void> warmUp(Duration keepAlive) {
+        return CompletableFuture.allOf(primary.client.warmUp(keepAlive).toCompletableFuture(),
+                secondary.client.warmUp(keepAlive).toCompletableFuture());
+    }
+
+    @Override
+    public OpenAIClient forRequest(RecipeRequest request) {
+        OpenAIClient target = primary.client.forRequest(request);
+        if (target == primary.client) {
+            return this;
+        }
+        return tierViews.computeIfAbsent(target, tier -> new FailoverClient(this, tier));
+    }
+
+    @Override
+    public String generateRecipe(String prompt) throws IOException {
+        try {
+            return generateRecipeAsync(prompt).toCompletableFuture().get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException
+                    ? (IOException) e.getCause()
+                    : new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a recipe", e);
+        }
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt) {
+        return generateRecipeAsync(prompt, RequestTiming.NONE);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+        return new Race((client, onToken, attemptTiming) -> client.generateRecipeAsync(prompt, attemptTiming),
+                null, timing).run();
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken) {
+        return generateRecipeStreaming(prompt, onToken, RequestTiming.NONE);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                           RequestTiming timing) {
+        return new Race((client, tokens, attemptTiming) -> client.generateRecipeStreaming(prompt, tokens, attemptTiming),
+                onToken, timing).run();
+    }
+
+    private Backend other(Backend backend) {
+        return backend == primary ? secondary : primary;
+    }
+
+    // The caller gave up or the backend is only busy: neither says the backend is unhealthy
+    private static boolean isFailure(Optional<String> result, Optional<Throwable> failure) {
+        if (failure.isEmpty()) {
+            return false;
+        }
+        Throwable cause = unwrap(failure.get());
+        return !(cause instanceof CancellationException
+                || cause instanceof ConcurrencyLimitedClient.LimitExceededException);
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * One logical call: at most one attempt per backend, settled by the first success.
+     * Each attempt laps its own fork of the timing; only the one that settles the call is
+     * joined back, so a hedge's stages never mix with the primary's.
+     */
+    private final class Race {
+        private final Call call;
+        private final Consumer<String> onToken;
+        private final RequestTiming timing;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final List<CompletableFuture<String>> attempts = new ArrayList<>(2);
+        private final List<Backend> attemptBackends = new ArrayList<>(2);
+        private Backend tokenOwner;
+        private Backend hedgedTo;
+        private int running = 0;
+
+        Race(Call call, Consumer<String> onToken, RequestTiming timing) {
+            this.call = call;
+            this.onToken = onToken;
+            this.timing = timing;
+        }
+
+        CompletableFuture<String> run() {
+            // An open breaker would only fail fast, so go straight to the other backend
+            Backend first = primary.breaker.isOpen() && !secondary.breaker.isOpen() ? secondary : primary;
+            start(first);
+
+            Duration hedgeDelay = first == primary ? primary.hedgeDelay() : null;
+            Cancellable hedgeTimer = hedgeDelay != null
+                    ? scheduler.scheduleOnce(hedgeDelay, this::hedge, executionContext)
+                    : null;
+
+            result.whenComplete((text, failure) -> {
+                if (hedgeTimer != null) {
+                    hedgeTimer.cancel();
+                }
+                if (result.isCancelled()) {
+                    cancelAll();
+                }
+            });
+            return result;
+        }
+
+        private synchronized void hedge() {
+            if (result.isDone() || tokenOwner != null || running == 0 || attempts.size() > 1
+                    || secondary.breaker.isOpen()) {
+                return;
+            }
+            hedgesSent.increment();
+            hedgedTo = secondary;
+            start(secondary);
+        }
+
+        private synchronized void start(Backend backend) {
+            running++;
+            Consumer<String> tokens = onToken == null ? token -> { } : token -> onToken(backend, token);
+            RequestTiming attemptTiming = timing.fork();
+            CompletableFuture<String> attempt = backend.call(client -> call.start(client, tokens, attemptTiming));
+            attempts.add(attempt);
+            attemptBackends.add(backend);
+            attempt.whenComplete((text, failure) -> finished(backend, attemptTiming, text, failure));
+        }
+
+        // The first backend to stream a token owns the stream; the other is cancelled
+        private void onToken(Backend backend, String token) {
+            boolean forward;
+            synchronized (this) {
+                if (tokenOwner == null) {
+                    tokenOwner = backend;
+                    cancelOthers(backend);
+                }
+                forward = tokenOwner == backend;
+            }
+            if (forward) {
+                onToken.accept(token);
+            }
+        }
+
+        private void finished(Backend backend, RequestTiming attemptTiming, String text, Throwable failure) {
+            Throwable cause = failure == null ? null : unwrap(failure);
+            Backend retry = null;
+            synchronized (this) {
+                running--;
+                if (result.isDone()) {
+                    return;
+                }
+                if (cause == null) {
+                    if (backend == hedgedTo) {
+                        hedgesWon.increment();
+                    }
+                    // Settle before cancelling, so the loser's cancellation finds the race decided
+                    timing.join(attemptTiming);
+                    result.complete(text);
+                    cancelOthers(backend);
+                    return;
+                } else if (cause instanceof CancellationException) {
+                    // Lost the race; the winner settles the result
+                    if (running > 0) {
+                        return;
+                    }
+                } else if (running == 0 && attempts.size() < 2 && tokenOwner == null
+                        && !other(backend).breaker.isOpen()) {
+                    // Nothing streamed yet, so the other backend can start from scratch
+                    retry = other(backend);
+                } else if (running > 0) {
+                    return;
+                }
+            }
+
+            if (retry != null) {
+                backend.failovers.increment();
+                log.warn("🔀 {} failed ({}), failing over to {}", backend.name, cause.getMessage(), retry.name);
+                start(retry);
+            } else {
+                timing.join(attemptTiming);
+                result.completeExceptionally(cause);
+            }
+        }
+
+        private synchronized void cancelOthers(Backend winner) {
+            for (int i = 0; i < attempts.size(); i++) {
+                if (attemptBackends.get(i) != winner) {
+                    attempts.get(i).cancel(true);
+                }
+            }
+        }
+
+        private synchronized void cancelAll() {
+            for (CompletableFuture<String> attempt : attempts) {
+                attempt.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * One backend with its circuit breaker, recent latencies and counters.
+     */
+    private final class Backend {
+        final OpenAIClient client;
+        final String name;
+        final CircuitBreaker breaker;
+        final LatencyWindow latencies = new LatencyWindow(256);
+        final Metrics.Counter failovers;
+
+        private Backend(OpenAIClient client, CircuitBreaker breaker, Metrics.Counter failovers) {
+            this.client = client;
+            this.name = client.getBackendName();
+            this.breaker = breaker;
+            this.failovers = failovers;
+        }
+
+        // The same server through another model: shares the breaker, not the latencies
+        Backend forTier(OpenAIClient tier) {
+            return new Backend(tier, breaker, failovers);
+        }
+
+        Backend(OpenAIClient client, Scheduler scheduler) {
+            this.client = client;
+            this.name = client.getBackendName();
+            this.breaker = CircuitBreaker.create(scheduler, ConfigLoader.getBreakerMaxFailures(),
+                    ConfigLoader.getBreakerCallTimeout(), ConfigLoader.getBreakerResetTimeout());
+            this.failovers = Metrics.counter("cooking_failovers_total",
+                    "Calls retried on the other backend after a failure", "from", name);
+
+            breaker.addOnOpenListener(() -> log.warn("⚡ Circuit to {} opened, routing around it", name));
+            breaker.addOnHalfOpenListener(() -> log.info("⚡ Circuit to {} half-open, trying one call", name));
+            breaker.addOnCloseListener(() -> log.info("✅ Circuit to {} closed", name));
+            Metrics.gauge("cooking_circuit_open", "1 while the backend's circuit breaker is open or half-open",
+                    () -> breaker.isClosed() ? 0 : 1, "backend", name);
+        }
+
+        // Cancelling the returned future cancels the backend call, which the breaker's future does not
+        CompletableFuture<String> call(Function<OpenAIClient, CompletionStage<String>> start) {
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            CompletableFuture<?>[] inner = new CompletableFuture<?>[1];
+            long startNanos = System.nanoTime();
+
+            breaker.callWithCircuitBreakerCS(() -> {
+                CompletableFuture<String> running = start.apply(client).toCompletableFuture();
+                inner[0] = running;
+                return running;
+            }, FailoverClient::isFailure).whenComplete((text, failure) -> {
+                if (failure == null) {
+                    latencies.record(System.nanoTime() - startNanos);
+                    attempt.complete(text);
+                } else {
+                    attempt.completeExceptionally(unwrap(failure));
+                }
+            });
+
+            attempt.whenComplete((text, failure) -> {
+                // Also covers the breaker's call-timeout, which leaves the call running
+                if (failure != null && inner[0] != null && !inner[0].isDone()) {
+                    inner[0].cancel(true);
+                }
+            });
+            return attempt;
+        }
+
+        // Null until enough calls have finished to trust the quantile
+        Duration hedgeDelay() {
+            if (!hedging || latencies.count() < hedgeMinSamples) {
+                return null;
+            }
+            Duration quantile = Duration.ofNanos(latencies.quantile(hedgeQuantile));
+            return quantile.compareTo(hedgeMinDelay) > 0 ? quantile : hedgeMinDelay;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.cooking.api;
+
+import java.util.Arrays;
+
+/**
+ * The last {@code capacity} latencies of successful calls, for quantiles that follow
+ * recent behaviour (hedge delays, SLO checks). With a maximum age, older samples no
+ * longer count, so the window empties again once calls stop arriving.
+ */
+final class LatencyWindow {
+    private static final long NO_MAX_AGE = Long.MAX_VALUE;
+
+    private final long[] samples;
+    private final long[] recordedAt;
+    private final long maxAgeNanos;
+    private long count = 0;
+
+    LatencyWindow(int capacity) {
+        this(capacity, NO_MAX_AGE);
+    }
+
+    LatencyWindow(int capacity, long maxAgeNanos) {
+        this.samples = new long[capacity];
+        this.recordedAt = new long[capacity];
+        this.maxAgeNanos = maxAgeNanos;
+    }
+
+    synchronized void record(long nanos) {
+        int slot = (int) (count++ % samples.length);
+        samples[slot] = nanos;
+        recordedAt[slot] = System.nanoTime();
+    }
+
+    /**
+     * Samples in the window that are not past the maximum age.
+     */
+    synchronized long count() {
+        if (maxAgeNanos == NO_MAX_AGE) {
+            return count;
+        }
+        return live(null);
+    }
+
+    synchronized long quantile(double q) {
+        long[] sorted = new long[(int) Math.min(count, samples.length)];
+        int size = live(sorted);
+        if (size == 0) {
+            return 0L;
+        }
+        Arrays.sort(sorted, 0, size);
+        return sorted[Math.min(size - 1, (int) Math.ceil(q * size) - 1)];
+    }
+
+    // Counts the samples young enough to use, copying them into out if given
+    private int live(long[] out) {
+        int size = (int) Math.min(count, samples.length);
+        long now = System.nanoTime();
+        int live = 0;
+        for (int i = 0; i < size; i++) {
+            if (maxAgeNanos == NO_MAX_AGE || now - recordedAt[i] <= maxAgeNanos) {
+                if (out != null) {
+                    out[live] = samples[i];
+                }
+                live++;
+            }
+        }
+        return live;
+    }
+}
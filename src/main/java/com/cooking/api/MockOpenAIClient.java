@@ -1,9 +1,15 @@
 package com.cooking.api;
 
+import com.cooking.metrics.RequestTiming;
+
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Mock OpenAI Client for testing without API costs
@@ -35,6 +41,11 @@ public class MockOpenAIClient extends OpenAIClient {
         super(apiKey, model, temperature);
     }
 
+    @Override
+    public String getBackendName() {
+        return "mock";
+    }
+
     @Override
     public String generateRecipe(String prompt) throws IOException {
         // Simulate API delay
@@ -44,6 +55,32 @@ public class MockOpenAIClient extends OpenAIClient {
             Thread.currentThread().interrupt();
         }
 
+        return renderRecipe(prompt);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+        // Same simulated delay as generateRecipe, but scheduled instead of slept
+        return CompletableFuture.supplyAsync(() -> {
+            timing.lap(RequestTiming.Stage.PREFILL);
+            return renderRecipe(prompt);
+        }, CompletableFuture.delayedExecutor(500 + random.nextInt(1000), TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                           RequestTiming timing) {
+        // Replay the canned recipe word by word so streaming consumers see incremental chunks
+        return generateRecipeAsync(prompt, timing).thenApply(recipe -> {
+            for (String token : recipe.split("(?<=\\s)")) {
+                onToken.accept(token);
+            }
+            timing.lap(RequestTiming.Stage.DECODE);
+            return recipe;
+        });
+    }
+
+    protected String renderRecipe(String prompt) {
         // Analyze prompt to determine recipe type
         String lowerPrompt = prompt.toLowerCase();
         String[] templates = null;
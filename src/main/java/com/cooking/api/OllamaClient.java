@@ -1,6 +1,16 @@
 package com.cooking.api;
 
-import org.springframework.ai.chat.ChatClient;
+import com.cooking.metrics.RequestTiming;
+import com.cooking.util.ConfigLoader;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.springframework.ai.chat.ChatResponse;
 import org.springframework.ai.chat.Generation;
 import org.springframework.ai.chat.messages.UserMessage;
@@ -8,9 +18,22 @@ import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.ollama.OllamaChatClient;
 import org.springframework.ai.ollama.api.OllamaApi;
 import org.springframework.ai.ollama.api.OllamaOptions;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Ollama Client - Uses locally running Ollama server with Spring AI
@@ -20,10 +43,16 @@ import java.util.List;
  * Spring AI provides a cleaner integration with Ollama
  */
 public class OllamaClient extends OpenAIClient {
-    private final ChatClient chatClient;
+    private final OllamaChatClient chatClient;
     private final String model;
     private final OllamaOptions defaultOptions;
+    private final String ollamaUrl;
     private static final String DEFAULT_OLLAMA_URL = "http://localhost:11434";
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    // Models on the server, from the last tags call
+    private volatile CompletableFuture<List<String>> models;
+    private volatile long modelsFetchedNanos;
 
     /**
      * Creates an OllamaClient with the specified model
@@ -32,6 +61,7 @@ public class OllamaClient extends OpenAIClient {
     public OllamaClient(String model) {
         super("dummy", model, 0.7); // Dummy values for parent constructor
         this.model = model;
+        this.ollamaUrl = DEFAULT_OLLAMA_URL;
 
         // Create default options
         this.defaultOptions = OllamaOptions.create()
@@ -51,6 +81,7 @@ public class OllamaClient extends OpenAIClient {
     public OllamaClient(String ollamaUrl, String model) {
         super("dummy", model, 0.7);
         this.model = model;
+        this.ollamaUrl = ollamaUrl;
 
         // Create default options
         this.defaultOptions = OllamaOptions.create()
@@ -62,7 +93,7 @@ public class OllamaClient extends OpenAIClient {
         this.chatClient = createChatClient(ollamaUrl);
     }
 
-    private ChatClient createChatClient(String ollamaUrl) {
+    private OllamaChatClient createChatClient(String ollamaUrl) {
         // Create OllamaApi with configuration
         OllamaApi ollamaApi = new OllamaApi(ollamaUrl);
 
@@ -70,6 +101,15 @@ public class OllamaClient extends OpenAIClient {
         return new OllamaChatClient(ollamaApi);
     }
 
+    @Override
+    public String getBackendName() {
+        return "ollama";
+    }
+
+    public String getUrl() {
+        return ollamaUrl;
+    }
+
     @Override
     public String generateRecipe(String prompt) throws IOException {
         // Skip if it's just a test call
@@ -101,18 +141,87 @@ public class OllamaClient extends OpenAIClient {
             throw new IOException("Empty response from Ollama");
 
         } catch (Exception e) {
-            // Handle Spring AI specific exceptions
-            String errorMessage = "Error calling Ollama API: " + e.getMessage();
-
-            // Add helpful debugging information
-            if (e.getMessage() != null && e.getMessage().contains("Connection refused")) {
-                errorMessage += "\nMake sure Ollama is running: 'ollama serve'";
-            } else if (e.getMessage() != null && e.getMessage().contains("model")) {
-                errorMessage += "\nMake sure model is downloaded: 'ollama pull " + model + "'";
+            throw toIOException(e);
+        }
+    }
+
+    /**
+     * Non-blocking generation built on the reactive (WebClient based) streaming API.
+     * The partial chunks are concatenated, so callers get the same text as
+     * {@link #generateRecipe(String)} without holding a thread for the whole generation.
+     */
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+        return generateRecipeStreaming(prompt, token -> { }, timing);
+    }
+
+    /**
+     * Streams tokens from Ollama as they are decoded, using Spring AI's Flux based chat API.
+     * Spring AI owns the HTTP connection and the JSON parsing, so connecting is charged to
+     * the prefill stage and parsing to decode.
+     */
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                           RequestTiming timing) {
+        Prompt springPrompt = new Prompt(
+                new UserMessage(createCookingPrompt(prompt)),
+                defaultOptions
+        );
+        AtomicBoolean firstToken = new AtomicBoolean(true);
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        Disposable subscription = chatClient.stream(springPrompt)
+                .map(OllamaClient::contentOf)
+                .filter(token -> !token.isEmpty())
+                .doOnNext(token -> {
+                    if (firstToken.compareAndSet(true, false)) {
+                        timing.lap(RequestTiming.Stage.PREFILL);
+                    }
+                    onToken.accept(token);
+                })
+                .collect(Collectors.joining())
+                .doOnSuccess(text -> timing.lap(RequestTiming.Stage.DECODE))
+                .flatMap(text -> text.isEmpty()
+                        ? Mono.<String>error(new IOException("Empty response from Ollama"))
+                        : Mono.just(text))
+                .onErrorMap(e -> !(e instanceof IOException), this::toIOException)
+                .subscribe(result::complete, result::completeExceptionally);
+
+        // Cancelling the stage (e.g. at a deadline) closes the stream, so Ollama stops generating
+        result.whenComplete((text, failure) -> {
+            if (result.isCancelled()) {
+                subscription.dispose();
             }
+        });
+        return result;
+    }
+
+    private static String contentOf(ChatResponse response) {
+        if (response != null && response.getResult() != null) {
+            Generation generation = response.getResult();
+            if (generation.getOutput() != null && generation.getOutput().getContent() != null) {
+                return generation.getOutput().getContent();
+            }
+        }
+        return "";
+    }
+
+    private IOException toIOException(Throwable e) {
+        if (e instanceof IOException) {
+            return (IOException) e;
+        }
+
+        // Handle Spring AI specific exceptions
+        String errorMessage = "Error calling Ollama API: " + e.getMessage();
 
-            throw new IOException(errorMessage, e);
+        // Add helpful debugging information
+        if (e.getMessage() != null && e.getMessage().contains("Connection refused")) {
+            errorMessage += "\nMake sure Ollama is running: 'ollama serve'";
+        } else if (e.getMessage() != null && e.getMessage().contains("model")) {
+            errorMessage += "\nMake sure model is downloaded: 'ollama pull " + model + "'";
         }
+
+        return new IOException(errorMessage, e);
     }
 
     /**
@@ -150,63 +259,134 @@ public class OllamaClient extends OpenAIClient {
                 throw new IOException("Ollama connection test failed");
             }
         } catch (Exception e) {
-            throw new IOException("Cannot connect to Ollama at " + DEFAULT_OLLAMA_URL +
+            throw new IOException("Cannot connect to Ollama at " + ollamaUrl +
                     ": " + e.getMessage(), e);
         }
     }
 
     /**
-     * Alternative synchronous method with timeout handling
+     * Alternative synchronous method with timeout handling. The call runs on the shared
+     * blocking I/O executor and is interrupted once the timeout passes.
      */
     public String generateRecipeWithTimeout(String prompt, int timeoutSeconds) throws IOException {
-        // Create a thread to handle timeout
-        final String[] result = new String[1];
-        final IOException[] error = new IOException[1];
-
-        Thread generationThread = new Thread(() -> {
-            try {
-                result[0] = generateRecipe(prompt);
-            } catch (IOException e) {
-                error[0] = e;
-            }
-        });
-
-        generationThread.start();
+        CompletableFuture<String> generation = BlockingIoExecutor.supply(() -> generateRecipe(prompt));
 
         try {
-            generationThread.join(timeoutSeconds * 1000L);
-            if (generationThread.isAlive()) {
-                generationThread.interrupt();
-                throw new IOException("Recipe generation timed out after " + timeoutSeconds + " seconds");
-            }
-
-            if (error[0] != null) {
-                throw error[0];
-            }
-
-            return result[0];
-
+            return generation.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            generation.cancel(true);
+            throw new IOException("Recipe generation timed out after " + timeoutSeconds + " seconds");
+        } catch (ExecutionException e) {
+            throw toIOException(e.getCause());
         } catch (InterruptedException e) {
+            generation.cancel(true);
+            Thread.currentThread().interrupt();
             throw new IOException("Recipe generation interrupted", e);
         }
     }
 
     /**
-     * Get available models from Ollama (hardcoded for now)
+     * Models pulled on this Ollama server, from its tags endpoint. The list is cached for
+     * cooking.ollama.model-cache-ttl.
      */
-    public List<String> getAvailableModels() {
-        // Return common models - in a real implementation,
-        // you would call Ollama's API to get the actual list
-        return List.of(
-                "llama3.2:1b",
-                "llama3.2:3b",
-                "llama3.1:8b",
-                "codellama:7b",
-                "mistral:7b",
-                "phi3:mini",
-                "gemma:2b",
-                "neural-chat:7b"
-        );
+    public List<String> getAvailableModels() throws IOException {
+        try {
+            return listModelsAsync().toCompletableFuture().join();
+        } catch (CompletionException e) {
+            throw toIOException(e.getCause());
+        }
+    }
+
+    /**
+     * Non-blocking {@link #getAvailableModels()}.
+     */
+    public CompletionStage<List<String>> listModelsAsync() {
+        CompletableFuture<List<String>> cached = models;
+        if (cached != null && !cached.isCompletedExceptionally()
+                && System.nanoTime() - modelsFetchedNanos < ConfigLoader.getOllamaModelCacheTtl().toNanos()) {
+            return cached;
+        }
+        return fetchModels();
+    }
+
+    /**
+     * Lists the server's models (refreshing the cache) and checks that ours is among them.
+     * Nothing is generated, so this answers in milliseconds even while no model is loaded.
+     */
+    @Override
+    public CompletionStage<Void> checkHealth() {
+        return fetchModels().thenApply(names -> {
+            if (!servesModel(names)) {
+                throw new CompletionException(new IOException("Model " + model + " is not available at "
+                        + ollamaUrl + "\nDownload it with: 'ollama pull " + model + "'"));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Has Ollama load the model without generating anything (a generate request with no
+     * prompt) and keep it in memory for {@code keepAlive}; a negative duration keeps it
+     * until the server restarts.
+     */
+    @Override
+    public CompletionStage<Void> warmUp(Duration keepAlive) {
+        JSONObject body = new JSONObject()
+                .put("model", model)
+                .put("keep_alive", keepAlive.isNegative() ? -1 : keepAlive.getSeconds());
+        Request request = new Request.Builder()
+                .url(ollamaUrl + "/api/generate")
+                .post(RequestBody.create(body.toString(), JSON))
+                .build();
+        // Loading a large model from disk can take well over the usual read timeout
+        OkHttpClient loader = httpClient().newBuilder().readTimeout(5, TimeUnit.MINUTES).build();
+        return send(loader, request).thenApply(response -> null);
+    }
+
+    private CompletableFuture<List<String>> fetchModels() {
+        Request request = new Request.Builder().url(ollamaUrl + "/api/tags").get().build();
+        CompletableFuture<List<String>> fetched = send(httpClient(), request).thenApply(response -> {
+            JSONArray entries = new JSONObject(response).optJSONArray("models");
+            List<String> names = new ArrayList<>();
+            for (int i = 0; entries != null && i < entries.length(); i++) {
+                names.add(entries.getJSONObject(i).getString("name"));
+            }
+            return List.copyOf(names);
+        });
+        models = fetched;
+        modelsFetchedNanos = System.nanoTime();
+        return fetched;
+    }
+
+    // Ollama lists untagged pulls as "<name>:latest"
+    private boolean servesModel(List<String> names) {
+        return names.contains(model) || (!model.contains(":") && names.contains(model + ":latest"));
+    }
+
+    // Small JSON calls to Ollama's own API, which Spring AI does not cover
+    private CompletableFuture<String> send(OkHttpClient client, Request request) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(new IOException("Cannot connect to Ollama at " + ollamaUrl
+                        + ": " + e.getMessage() + "\nMake sure Ollama is running: 'ollama serve'", e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    String text = response.body() != null ? response.body().string() : "";
+                    if (!response.isSuccessful()) {
+                        throw new IOException("Ollama at " + ollamaUrl + " answered " + response.code() + ": " + text);
+                    }
+                    result.complete(text);
+                } catch (IOException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
     }
 
     /**
@@ -218,16 +398,15 @@ public class OllamaClient extends OpenAIClient {
     }
 
     /**
-     * Asynchronous recipe generation
+     * Asynchronous recipe generation on the shared blocking I/O executor
      */
     public void generateRecipeAsync(String prompt, RecipeCallback callback) {
-        new Thread(() -> {
-            try {
-                String recipe = generateRecipe(prompt);
+        BlockingIoExecutor.supply(() -> generateRecipe(prompt)).whenComplete((recipe, failure) -> {
+            if (failure != null) {
+                callback.onError(toIOException(failure));
+            } else {
                 callback.onSuccess(recipe);
-            } catch (IOException e) {
-                callback.onError(e);
             }
-        }).start();
+        });
     }
 }
\ No newline at end of file
@@ -1,32 +1,206 @@
 package com.cooking.api;
 
+import com.cooking.metrics.RequestTiming;
+import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class OpenAIClient {
+    private static final String DEFAULT_BASE_URL = "https://api.openai.com";
+    private static final MediaType JSON = MediaType.parse("application/json");
+
     private final String apiKey;
     private final String model;
     private final double temperature;
+    private final String completionsUrl;
     private final OkHttpClient httpClient;
 
     public OpenAIClient(String apiKey, String model, double temperature) {
+        this(apiKey, model, temperature, DEFAULT_BASE_URL);
+    }
+
+    /**
+     * Client for an OpenAI-compatible server at {@code baseUrl}, such as the stub server.
+     */
+    public OpenAIClient(String apiKey, String model, double temperature, String baseUrl) {
         this.apiKey = apiKey;
         this.model = model;
         this.temperature = temperature;
+        this.completionsUrl = stripTrailingSlash(baseUrl) + "/v1/chat/completions";
+
+        // Calls run on the shared blocking I/O executor; one host serves every call, so the
+        // per-host limit is the executor's bound rather than OkHttp's default of 5
+        Dispatcher dispatcher = new Dispatcher(BlockingIoExecutor.shared());
+        dispatcher.setMaxRequests(ConfigLoader.getBlockingIoMaxConcurrent());
+        dispatcher.setMaxRequestsPerHost(ConfigLoader.getBlockingIoMaxConcurrent());
 
         // Configure HTTP client with timeouts
         this.httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(60, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
+                .eventListenerFactory(TimingEventListener.FACTORY)
                 .build();
     }
 
+    /**
+     * For clients that hand every call to other clients and never use the HTTP client.
+     */
+    protected OpenAIClient(String model) {
+        this.apiKey = null;
+        this.model = model;
+        this.temperature = 0.0;
+        this.completionsUrl = null;
+        this.httpClient = null;
+    }
+
+    /**
+     * Short backend identifier, used to look up per-backend settings under cooking.*
+     */
+    public String getBackendName() {
+        return "openai";
+    }
+
+    /**
+     * Servers behind this client; a node's LLMActor pool is sized per server.
+     */
+    public int getEndpointCount() {
+        return 1;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * The client that should serve {@code request}; routing clients pick a model tier here.
+     */
+    public OpenAIClient forRequest(RecipeRequest request) {
+        return this;
+    }
+
+    /**
+     * Cheap check that the backend is reachable and serves this model, without generating
+     * anything. Hosted APIs are assumed up; the failover breakers find out otherwise.
+     */
+    public CompletionStage<Void> checkHealth() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Loads the model ahead of the first request and keeps it loaded for {@code keepAlive}.
+     * Nothing to do for hosted APIs.
+     */
+    public CompletionStage<Void> warmUp(Duration keepAlive) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Shared with subclasses that talk to their server directly, so they use the same dispatcher
+    protected OkHttpClient httpClient() {
+        return httpClient;
+    }
+
     public String generateRecipe(String prompt) throws IOException {
+        try (Response response = httpClient.newCall(buildRequest(prompt, false, RequestTiming.NONE)).execute()) {
+            return readCompletion(response, RequestTiming.NONE);
+        } catch (Exception e) {
+            throw new IOException("Error calling OpenAI API: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #generateRecipe(String)}.
+     * The call is queued on OkHttp's dispatcher and the returned stage is completed
+     * from its callback, so the caller (usually an actor) never waits on the network.
+     */
+    public CompletionStage<String> generateRecipeAsync(String prompt) {
+        return generateRecipeAsync(prompt, RequestTiming.NONE);
+    }
+
+    /**
+     * As {@link #generateRecipeAsync(String)}, charging the client-side stages to {@code timing}.
+     */
+    public CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        Call call = httpClient.newCall(buildRequest(prompt, false, timing));
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(new IOException("Error calling OpenAI API: " + e.getMessage(), e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    result.complete(readCompletion(response, timing));
+                } catch (Exception e) {
+                    result.completeExceptionally(new IOException("Error calling OpenAI API: " + e.getMessage(), e));
+                }
+            }
+        });
+
+        return abortOnCancel(result, call);
+    }
+
+    /**
+     * Streams the generation using OpenAI's server-sent events.
+     * Every content delta is handed to {@code onToken} as soon as it arrives (on OkHttp's
+     * callback thread); the returned stage completes with the full text once the stream ends.
+     */
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken) {
+        return generateRecipeStreaming(prompt, onToken, RequestTiming.NONE);
+    }
+
+    /**
+     * As {@link #generateRecipeStreaming(String, Consumer)}, charging the client-side stages to {@code timing}.
+     */
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                           RequestTiming timing) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        Call call = httpClient.newCall(buildRequest(prompt, true, timing));
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(new IOException("Error calling OpenAI API: " + e.getMessage(), e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    result.complete(readCompletionStream(response, onToken, timing));
+                } catch (Exception e) {
+                    result.completeExceptionally(new IOException("Error calling OpenAI API: " + e.getMessage(), e));
+                }
+            }
+        });
+
+        return abortOnCancel(result, call);
+    }
+
+    // Cancelling the returned stage (e.g. at a deadline) aborts the HTTP call, freeing the connection
+    private static CompletableFuture<String> abortOnCancel(CompletableFuture<String> result, Call call) {
+        result.whenComplete((text, failure) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return result;
+    }
+
+    private Request buildRequest(String prompt, boolean stream, RequestTiming timing) {
         // Create the message object
         JSONObject message = new JSONObject();
         message.put("role", "user");
@@ -42,31 +216,97 @@ public class OpenAIClient {
         requestBody.put("temperature", temperature);
         requestBody.put("messages", messages);
         requestBody.put("max_tokens", 1000);
+        if (stream) {
+            requestBody.put("stream", true);
+        }
 
         // Create the HTTP request
-        Request request = new Request.Builder()
-                .url("https://api.openai.com/v1/chat/completions")
-                .post(RequestBody.create(requestBody.toString(), MediaType.parse("application/json")))
+        return new Request.Builder()
+                .url(completionsUrl)
+                .post(RequestBody.create(requestBody.toString(), JSON))
                 .addHeader("Authorization", "Bearer " + apiKey)
                 .addHeader("Content-Type", "application/json")
+                .tag(RequestTiming.class, timing == RequestTiming.NONE ? null : timing)
                 .build();
+    }
+
+    private String readCompletion(Response response, RequestTiming timing) throws IOException {
+        checkSuccessful(response);
+
+        String responseBody = response.body().string();
+        timing.lap(RequestTiming.Stage.DECODE);
+        String content = parseCompletion(responseBody);
+        timing.lap(RequestTiming.Stage.PARSE);
+        return content;
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error details";
-                throw new IOException("OpenAI API request failed with code " + response.code() + ": " + errorBody);
+    // Extracts the generated content from a chat completion body; package-private for the parsing benchmarks
+    static String parseCompletion(String responseBody) {
+        return new JSONObject(responseBody).getJSONArray("choices")
+                .getJSONObject(0)
+                .getJSONObject("message")
+                .getString("content");
+    }
+
+    // Extracts the content delta from one streamed chunk ("" when it carries none)
+    static String parseStreamDelta(String data) {
+        JSONObject choice = new JSONObject(data).getJSONArray("choices").optJSONObject(0);
+        JSONObject delta = choice != null ? choice.optJSONObject("delta") : null;
+        return delta != null ? delta.optString("content", "") : "";
+    }
+
+    private String readCompletionStream(Response response, Consumer<String> onToken,
+                                        RequestTiming timing) throws IOException {
+        checkSuccessful(response);
+
+        StringBuilder text = new StringBuilder();
+        BufferedSource source = response.body().source();
+        long decodeStart = 0L;
+        long parseNanos = 0L;
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            // SSE frames look like "data: {...}"; blank lines separate events
+            if (!line.startsWith("data:")) {
+                continue;
             }
 
-            String responseBody = response.body().string();
-            JSONObject jsonResponse = new JSONObject(responseBody);
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                break;
+            }
 
-            // Extract the generated content
-            return jsonResponse.getJSONArray("choices")
-                    .getJSONObject(0)
-                    .getJSONObject("message")
-                    .getString("content");
-        } catch (Exception e) {
-            throw new IOException("Error calling OpenAI API: " + e.getMessage(), e);
+            long parseStart = System.nanoTime();
+            String token = parseStreamDelta(data);
+            long parsed = System.nanoTime();
+            parseNanos += parsed - parseStart;
+
+            if (!token.isEmpty()) {
+                if (decodeStart == 0L) {
+                    // Time to first token; the response headers already charged their share
+                    timing.lap(RequestTiming.Stage.PREFILL);
+                    decodeStart = parsed;
+                    parseNanos = 0L;
+                }
+                text.append(token);
+                onToken.accept(token);
+            }
+        }
+
+        // Decode is the streaming span with the per-chunk JSON parsing taken out
+        if (decodeStart != 0L) {
+            timing.lap(RequestTiming.Stage.DECODE, RequestTiming.Stage.PARSE, parseNanos);
+        }
+        return text.toString();
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private void checkSuccessful(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "No error details";
+            throw new IOException("OpenAI API request failed with code " + response.code() + ": " + errorBody);
         }
     }
-}
\ No newline at end of file
+}
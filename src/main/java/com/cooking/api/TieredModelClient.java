@@ -0,0 +1,311 @@
+package com.cooking.api;
+
+import com.cooking.metrics.Metrics;
+import com.cooking.metrics.RequestTiming;
+import com.cooking.model.RecipeRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Routes each request to a small, fast model or a large one by how demanding it looks
+ * (see {@link #score(RecipeRequest)}); most recipe questions are simple and should not
+ * pay large-model latency.
+ *
+ * <p>Each tier has a latency SLO. While the preferred tier's p95 over the last
+ * {@code sloWindow} is over its SLO and the other tier is within its own, requests go to
+ * the other tier. The rerouted tier gets no new samples meanwhile, so its slow ones age
+ * out of the window and traffic returns to it, to be moved away again if it is still
+ * slow. A recipe from the small model that does not look like a recipe (too short, no
+ * ingredients, no steps) is generated again by the large model. Streaming calls are not
+ * retried that way, since their tokens have already reached the user.
+ *
+ * <p>Callers select the tier with {@link #forRequest(RecipeRequest)}; calls made on this
+ * client directly go to the small tier.
+ */
+public class TieredModelClient extends OpenAIClient {
+    private static final Logger log = LoggerFactory.getLogger(TieredModelClient.class);
+
+    // Recent calls needed before a tier's p95 is compared with its SLO
+    private static final int MIN_SLO_SAMPLES = 20;
+    private static final Pattern STEP_LINE = Pattern.compile("(?m)^\\s*(\\d+[.)]|[-*•])\\s+\\S");
+    private static final Pattern[] DEMANDING_PHRASES = {
+            Pattern.compile("\\b(menu|meal plan|multi-course|courses|week|batch|for \\d{2,} (people|guests))\\b"),
+            Pattern.compile("\\b(without|free|allerg\\w*|intoleran\\w*|substitut\\w*|replace)\\b"),
+            Pattern.compile("\\b(and|with|plus)\\b.*\\b(and|with|plus)\\b"),
+    };
+
+    private final Tier small;
+    private final Tier large;
+    private final double threshold;
+    private final int minRecipeChars;
+
+    public TieredModelClient(OpenAIClient smallModel, Duration smallSlo,
+                             OpenAIClient largeModel, Duration largeSlo,
+                             double threshold, int minRecipeChars, Duration sloWindow) {
+        super("tiered");
+        this.large = new Tier(largeModel, largeSlo, null, sloWindow);
+        this.small = new Tier(smallModel, smallSlo, large, sloWindow);
+        this.threshold = threshold;
+        this.minRecipeChars = minRecipeChars;
+    }
+
+    /**
+     * How demanding a request is, from 0 (a plain dish) to 1: long queries, dietary
+     * constraints, requested substitutions and phrases such as "meal plan" or "without"
+     * each add to it.
+     */
+    public static double score(RecipeRequest request) {
+        String query = request.getQuery() == null ? "" : request.getQuery().toLowerCase(Locale.ROOT);
+        double score = Math.min(1.0, query.split("\\s+").length / 30.0) * 0.4;
+
+        String diet = request.getDietaryPreference();
+        if (diet != null && !diet.isBlank() && !"none".equalsIgnoreCase(diet)) {
+            score += diet.contains(",") || diet.contains(" and ") ? 0.35 : 0.25;
+        }
+        if (request.isNeedSubstitutions()) {
+            score += 0.3;
+        }
+        for (Pattern phrase : DEMANDING_PHRASES) {
+            if (phrase.matcher(query).find()) {
+                score += 0.2;
+            }
+        }
+        return Math.min(1.0, score);
+    }
+
+    @Override
+    public OpenAIClient forRequest(RecipeRequest request) {
+        Tier preferred = score(request) >= threshold ? large : small;
+        Tier other = preferred == large ? small : large;
+        if (preferred.overSlo() && !other.overSlo()) {
+            preferred.sloReroutes.increment();
+            return other;
+        }
+        return preferred;
+    }
+
+    @Override
+    public String getBackendName() {
+        return small.model.getBackendName();
+    }
+
+    @Override
+    public int getEndpointCount() {
+        return small.model.getEndpointCount();
+    }
+
+    @Override
+    public CompletionStage<Void> checkHealth() {
+        return CompletableFuture.allOf(small.model.checkHealth().toCompletableFuture(),
+                large.model.checkHealth().toCompletableFuture());
+    }
+
+    @Override
+    public CompletionStage<Void> warmUp(Duration keepAlive) {
+        return CompletableFuture.allOf(small.model.warmUp(keepAlive).toCompletableFuture(),
+                large.model.warmUp(keepAlive).toCompletableFuture());
+    }
+
+    @Override
+    public String generateRecipe(String prompt) throws IOException {
+        return small.generateRecipe(prompt);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt) {
+        return small.generateRecipeAsync(prompt);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+        return small.generateRecipeAsync(prompt, timing);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken) {
+        return small.generateRecipeStreaming(prompt, onToken);
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                           RequestTiming timing) {
+        return small.generateRecipeStreaming(prompt, onToken, timing);
+    }
+
+    /**
+     * Loose structural check: long enough, mentions ingredients, and has at least two
+     * numbered or bulleted lines.
+     */
+    boolean looksLikeRecipe(String text) {
+        if (text == null || text.length() < minRecipeChars
+                || !text.toLowerCase(Locale.ROOT).contains("ingredient")) {
+            return false;
+        }
+        Matcher steps = STEP_LINE.matcher(text);
+        int found = 0;
+        while (found < 2 && steps.find()) {
+            found++;
+        }
+        return found == 2;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * One model with its SLO and, for the small tier, the tier to fall back on.
+     */
+    private final class Tier extends OpenAIClient {
+        final OpenAIClient model;
+        final Duration slo;
+        final Tier fallback;
+        final LatencyWindow latencies;
+        final Metrics.Counter requests;
+        final Metrics.Counter malformed;
+        final Metrics.Counter sloReroutes;
+
+        Tier(OpenAIClient model, Duration slo, Tier fallback, Duration sloWindow) {
+            super(model.getModel());
+            this.model = model;
+            this.slo = slo;
+            this.fallback = fallback;
+            this.latencies = new LatencyWindow(256, sloWindow.toNanos());
+            String name = model.getModel();
+            this.requests = Metrics.counter("cooking_model_requests_total", "Calls per model tier", "model", name);
+            this.malformed = Metrics.counter("cooking_model_malformed_total",
+                    "Recipes that failed the structural check and were regenerated", "model", name);
+            this.sloReroutes = Metrics.counter("cooking_model_slo_reroutes_total",
+                    "Requests sent to the other tier because this one was over its SLO", "model", name);
+            Metrics.gauge("cooking_model_p95_seconds", "Recent p95 latency per model tier",
+                    () -> latencies.quantile(0.95) / 1e9, "model", name);
+        }
+
+        boolean overSlo() {
+            return latencies.count() >= MIN_SLO_SAMPLES && latencies.quantile(0.95) > slo.toNanos();
+        }
+
+        @Override
+        public String getBackendName() {
+            return model.getBackendName();
+        }
+
+        @Override
+        public int getEndpointCount() {
+            return model.getEndpointCount();
+        }
+
+        @Override
+        public String generateRecipe(String prompt) throws IOException {
+            requests.increment();
+            long start = System.nanoTime();
+            String recipe;
+            try {
+                recipe = model.generateRecipe(prompt);
+            } catch (IOException | RuntimeException e) {
+                recordUnlessCancelled(e, start);
+                throw e;
+            }
+            latencies.record(System.nanoTime() - start);
+            if (fallback != null && !looksLikeRecipe(recipe)) {
+                malformed.increment();
+                log.warn("🧩 {} returned a malformed recipe, asking {}", getModel(), fallback.getModel());
+                return fallback.generateRecipe(prompt);
+            }
+            return recipe;
+        }
+
+        @Override
+        public CompletionStage<String> generateRecipeAsync(String prompt) {
+            return generateRecipeAsync(prompt, RequestTiming.NONE);
+        }
+
+        @Override
+        public CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+            return checked(() -> model.generateRecipeAsync(prompt, timing),
+                    () -> fallback.generateRecipeAsync(prompt, timing));
+        }
+
+        @Override
+        public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken) {
+            return generateRecipeStreaming(prompt, onToken, RequestTiming.NONE);
+        }
+
+        @Override
+        public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                               RequestTiming timing) {
+            return checked(() -> model.generateRecipeStreaming(prompt, onToken, timing), null);
+        }
+
+        // Runs call, and retry on the fallback tier if the recipe is malformed; cancelling
+        // the returned stage cancels whichever of the two is running
+        private CompletableFuture<String> checked(Supplier<CompletionStage<String>> call,
+                                                  Supplier<CompletionStage<String>> retry) {
+            requests.increment();
+            long start = System.nanoTime();
+            CompletableFuture<String> result = new CompletableFuture<>();
+            CompletableFuture<String> first = call.get().toCompletableFuture();
+            CompletableFuture<?>[] running = {first};
+
+            first.whenComplete((recipe, failure) -> {
+                if (failure != null) {
+                    Throwable cause = unwrap(failure);
+                    recordUnlessCancelled(cause, start);
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                latencies.record(System.nanoTime() - start);
+                if (fallback == null || retry == null || looksLikeRecipe(recipe) || result.isDone()) {
+                    result.complete(recipe);
+                    return;
+                }
+
+                malformed.increment();
+                log.warn("🧩 {} returned a malformed recipe, asking {}", getModel(), fallback.getModel());
+                CompletableFuture<String> second = retry.get().toCompletableFuture();
+                running[0] = second;
+                second.whenComplete((text, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(unwrap(error));
+                    } else {
+                        result.complete(text);
+                    }
+                });
+                if (result.isCancelled()) {
+                    second.cancel(true);
+                }
+            });
+
+            result.whenComplete((recipe, failure) -> {
+                if (result.isCancelled()) {
+                    running[0].cancel(true);
+                }
+            });
+            return result;
+        }
+
+        // A call that failed or timed out still shows how the tier is doing; one cancelled
+        // by its caller (a deadline, or the other half of a hedge) does not
+        private void recordUnlessCancelled(Throwable failure, long start) {
+            boolean cancelled = failure instanceof CancellationException
+                    || (failure instanceof InterruptedIOException && !(failure instanceof SocketTimeoutException));
+            if (!cancelled) {
+                latencies.record(System.nanoTime() - start);
+            }
+        }
+    }
+}
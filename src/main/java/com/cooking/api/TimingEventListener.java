@@ -0,0 +1,55 @@
+package com.cooking.api;
+
+import com.cooking.metrics.RequestTiming;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+
+/**
+ * Charges OkHttp's connection phases to the {@link RequestTiming} tagged on a request.
+ * Calls without a timing tag get {@link EventListener#NONE}.
+ */
+class TimingEventListener extends EventListener {
+    static final EventListener.Factory FACTORY = call -> {
+        RequestTiming timing = call.request().tag(RequestTiming.class);
+        return timing != null ? new TimingEventListener(timing) : EventListener.NONE;
+    };
+
+    private final RequestTiming timing;
+    // Retries and redirects look for a connection again; only the first search ends DISPATCH
+    private boolean dispatched;
+
+    private TimingEventListener(RequestTiming timing) {
+        this.timing = timing;
+    }
+
+    // callStart fires on enqueue, before the dispatcher wait; a call reaches one of these
+    // once it runs: proxy selection for a new route, or straight to a pooled connection
+    @Override
+    public void proxySelectStart(Call call, HttpUrl url) {
+        lapDispatch();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        lapDispatch();
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        timing.lap(RequestTiming.Stage.CONNECT);
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        timing.lap(RequestTiming.Stage.PREFILL);
+    }
+
+    private void lapDispatch() {
+        if (!dispatched) {
+            dispatched = true;
+            timing.lap(RequestTiming.Stage.DISPATCH);
+        }
+    }
+}
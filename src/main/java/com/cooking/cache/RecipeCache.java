@@ -0,0 +1,156 @@
+package com.cooking.cache;
+
+import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory cache of generated recipes keyed by {@link RecipeRequest}.
+ * Entries are evicted least-recently-used first when either the entry count or the
+ * estimated memory weight goes over its limit, and expire after a fixed TTL.
+ * Not thread-safe: it is owned by a single actor (RecipeFinder).
+ */
+public class RecipeCache {
+    // Rough per-entry overhead: map node, key object, entry object and string headers
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+
+    private static final class Entry {
+        final String recipe;
+        final long weight;
+        final long expiresAtNanos;
+
+        Entry(String recipe, long weight, long expiresAtNanos) {
+            this.recipe = recipe;
+            this.weight = weight;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<RecipeRequest, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final int maxEntries;
+    private final long maxWeightBytes;
+    private final long ttlNanos;
+
+    private long weightBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+
+    public RecipeCache(int maxEntries, long maxWeightBytes, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.maxWeightBytes = maxWeightBytes;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Creates a cache sized from cooking.cache; a disabled cache never stores anything.
+     */
+    public static RecipeCache fromConfig() {
+        if (!ConfigLoader.isCacheEnabled()) {
+            return new RecipeCache(0, 0, Duration.ZERO);
+        }
+        return new RecipeCache(
+                ConfigLoader.getCacheMaxEntries(),
+                ConfigLoader.getCacheMaxWeightBytes(),
+                ConfigLoader.getCacheTtl()
+        );
+    }
+
+    /**
+     * Returns the cached recipe, or null on a miss (including expired entries).
+     */
+    public String get(RecipeRequest request) {
+        Entry entry = entries.get(request);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        if (entry.expiresAtNanos - System.nanoTime() <= 0) {
+            entries.remove(request);
+            weightBytes -= entry.weight;
+            expirations++;
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.recipe;
+    }
+
+    public void put(RecipeRequest request, String recipe) {
+        long weight = weigh(request, recipe);
+        if (maxEntries <= 0 || weight > maxWeightBytes) {
+            return;
+        }
+
+        Entry previous = entries.put(request, new Entry(recipe, weight, System.nanoTime() + ttlNanos));
+        if (previous != null) {
+            weightBytes -= previous.weight;
+        }
+        weightBytes += weight;
+
+        evictToLimits();
+    }
+
+    public void invalidate(RecipeRequest request) {
+        Entry removed = entries.remove(request);
+        if (removed != null) {
+            weightBytes -= removed.weight;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long weightBytes() {
+        return weightBytes;
+    }
+
+    public long hitCount() {
+        return hits;
+    }
+
+    public long missCount() {
+        return misses;
+    }
+
+    public long evictionCount() {
+        return evictions;
+    }
+
+    public long expirationCount() {
+        return expirations;
+    }
+
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    private void evictToLimits() {
+        Iterator<Map.Entry<RecipeRequest, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weightBytes > maxWeightBytes) && eldest.hasNext()) {
+            Entry entry = eldest.next().getValue();
+            eldest.remove();
+            weightBytes -= entry.weight;
+            evictions++;
+        }
+    }
+
+    private static long weigh(RecipeRequest request, String recipe) {
+        // Strings are counted at two bytes per char, the worst case for non-Latin-1 text
+        long chars = recipe.length() + request.getQuery().length();
+        if (request.getDietaryPreference() != null) {
+            chars += request.getDietaryPreference().length();
+        }
+        return ENTRY_OVERHEAD_BYTES + 2 * chars;
+    }
+}
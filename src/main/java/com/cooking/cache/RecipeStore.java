@@ -0,0 +1,316 @@
+package com.cooking.cache;
+
+import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Append-only on-disk recipe store that survives restarts.
+ *
+ * <p>Layout inside the store directory:
+ * <ul>
+ *   <li>{@code recipes.idx} - a header plus a fixed-size open-addressing hash table,
+ *       memory-mapped, mapping a 64-bit hash of the normalized request to a record location</li>
+ *   <li>{@code data-NNNNN.seg} - fixed-size data segments, memory-mapped, holding
+ *       {@code [keyLen][key][valueLen][value]} records appended one after another</li>
+ * </ul>
+ *
+ * <p>Opening the store only maps the index: the header records the active segment and
+ * write offset, so the data is never scanned at startup. Reads return slices of the
+ * mapped segment without copying. Writes land in the page cache immediately; {@link #flush()}
+ * (called on close) forces them to disk. Overwritten records are not reclaimed.
+ * Not thread-safe: owned by a single actor (RecipeFinder).
+ */
+public class RecipeStore implements Closeable {
+    private static final int MAGIC = 0x52435053; // "RCPS"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HDR_MAGIC = 0;
+    private static final int HDR_VERSION = 4;
+    private static final int HDR_SLOT_COUNT = 8;
+    private static final int HDR_USED_SLOTS = 12;
+    private static final int HDR_ACTIVE_SEGMENT = 16;
+    private static final int HDR_SEGMENT_SIZE = 24;
+    private static final int HDR_WRITE_OFFSET = 32;
+
+    private static final int SLOT_SIZE = 24;
+    private static final int SLOT_HASH = 0;
+    private static final int SLOT_SEGMENT = 8;
+    private static final int SLOT_LENGTH = 12; // 0 marks an empty slot
+    private static final int SLOT_OFFSET = 16;
+
+    private static final double MAX_LOAD = 0.75;
+
+    private final Path directory;
+    private final FileChannel indexChannel;
+    private final FileLock lock;
+    private final MappedByteBuffer index;
+    private final int slotCount;
+    private final long segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private RecipeStore(Path directory, FileChannel indexChannel, FileLock lock, MappedByteBuffer index) {
+        this.directory = directory;
+        this.indexChannel = indexChannel;
+        this.lock = lock;
+        this.index = index;
+        this.slotCount = index.getInt(HDR_SLOT_COUNT);
+        this.segmentSize = index.getLong(HDR_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens (or creates) a store. For an existing store the slot count and segment
+     * size recorded in its header win over the arguments.
+     */
+    public static RecipeStore open(Path directory, int slotCount, long segmentSize) throws IOException {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("index slot count must be a power of two: " + slotCount);
+        }
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segment size must be between 1 byte and 2GiB: " + segmentSize);
+        }
+
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve("recipes.idx"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                throw new IOException("Recipe store " + directory + " is in use by another process");
+            }
+
+            boolean fresh = channel.size() == 0;
+            if (!fresh) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                if (header.getInt(HDR_MAGIC) != MAGIC || header.getInt(HDR_VERSION) != VERSION) {
+                    throw new IOException("Not a recipe store index (or unsupported version): " + directory);
+                }
+                slotCount = header.getInt(HDR_SLOT_COUNT);
+            }
+
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) slotCount * SLOT_SIZE);
+            if (fresh) {
+                index.putInt(HDR_MAGIC, MAGIC);
+                index.putInt(HDR_VERSION, VERSION);
+                index.putInt(HDR_SLOT_COUNT, slotCount);
+                index.putInt(HDR_USED_SLOTS, 0);
+                index.putInt(HDR_ACTIVE_SEGMENT, 0);
+                index.putLong(HDR_SEGMENT_SIZE, segmentSize);
+                index.putLong(HDR_WRITE_OFFSET, 0L);
+            }
+
+            return new RecipeStore(directory, channel, lock, index);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the store configured under cooking.store, or returns null when it is disabled.
+     */
+    public static RecipeStore openFromConfig() throws IOException {
+        if (!ConfigLoader.isStoreEnabled()) {
+            return null;
+        }
+        return open(Paths.get(ConfigLoader.getStoreDirectory()),
+                ConfigLoader.getStoreIndexSlots(),
+                ConfigLoader.getStoreSegmentSize());
+    }
+
+    /**
+     * Zero-copy lookup: returns a read-only view of the stored recipe's UTF-8 bytes
+     * inside the mapped segment, or null if the request has never been stored.
+     */
+    public ByteBuffer read(RecipeRequest request) throws IOException {
+        byte[] key = normalizedKey(request).getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(key, hash(key));
+        if (slot < 0 || slotLength(slot) == 0) {
+            return null;
+        }
+
+        ByteBuffer record = record(slot);
+        int keyLength = record.getInt(0);
+        int valueLength = record.getInt(4 + keyLength);
+        return slice(record, 8 + keyLength, valueLength).asReadOnlyBuffer();
+    }
+
+    public String get(RecipeRequest request) throws IOException {
+        ByteBuffer value = read(request);
+        return value == null ? null : StandardCharsets.UTF_8.decode(value).toString();
+    }
+
+    /**
+     * Appends the recipe and points the index at it. Returns false if the record
+     * does not fit in a segment or the index is full.
+     */
+    public boolean put(RecipeRequest request, String recipe) throws IOException {
+        byte[] key = normalizedKey(request).getBytes(StandardCharsets.UTF_8);
+        byte[] value = recipe.getBytes(StandardCharsets.UTF_8);
+        long keyHash = hash(key);
+
+        int slot = findSlot(key, keyHash);
+        if (slot < 0) {
+            return false;
+        }
+        boolean newSlot = slotLength(slot) == 0;
+        if (newSlot && usedSlots() + 1 > slotCount * MAX_LOAD) {
+            return false;
+        }
+
+        int recordLength = 8 + key.length + value.length;
+        if (recordLength > segmentSize) {
+            return false;
+        }
+
+        int segment = index.getInt(HDR_ACTIVE_SEGMENT);
+        long offset = index.getLong(HDR_WRITE_OFFSET);
+        if (offset + recordLength > segmentSize) {
+            segment++;
+            offset = 0;
+        }
+
+        // Write the record, then advance the header, then publish it in the index,
+        // so a slot never points past the recorded write offset
+        ByteBuffer out = slice(segment(segment), (int) offset, recordLength);
+        out.putInt(key.length).put(key).putInt(value.length).put(value);
+
+        index.putInt(HDR_ACTIVE_SEGMENT, segment);
+        index.putLong(HDR_WRITE_OFFSET, offset + recordLength);
+
+        int base = slotBase(slot);
+        index.putLong(base + SLOT_HASH, keyHash);
+        index.putInt(base + SLOT_SEGMENT, segment);
+        index.putLong(base + SLOT_OFFSET, offset);
+        index.putInt(base + SLOT_LENGTH, recordLength);
+        if (newSlot) {
+            index.putInt(HDR_USED_SLOTS, usedSlots() + 1);
+        }
+        return true;
+    }
+
+    public int size() {
+        return usedSlots();
+    }
+
+    public void flush() {
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+        index.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        segments.clear();
+        lock.release();
+        indexChannel.close();
+    }
+
+    /**
+     * Canonical form used for keys: case and extra whitespace in the query don't
+     * matter, and a missing dietary preference is the same as "none".
+     */
+    static String normalizedKey(RecipeRequest request) {
+        String query = request.getQuery() == null ? "" : request.getQuery();
+        query = query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+
+        String dietary = request.getDietaryPreference() == null ? "" : request.getDietaryPreference().trim();
+        dietary = dietary.isEmpty() ? "none" : dietary.toLowerCase(Locale.ROOT);
+
+        return query + '\u0000' + dietary + '\u0000' + (request.isNeedSubstitutions() ? '1' : '0');
+    }
+
+    // FNV-1a, 64 bit
+    private static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // Returns the slot holding this key, the empty slot where it belongs, or -1 if the table is full
+    private int findSlot(byte[] key, long keyHash) throws IOException {
+        int mask = slotCount - 1;
+        int slot = (int) (keyHash ^ (keyHash >>> 32)) & mask;
+        for (int probes = 0; probes < slotCount; probes++, slot = (slot + 1) & mask) {
+            if (slotLength(slot) == 0) {
+                return slot;
+            }
+            if (index.getLong(slotBase(slot) + SLOT_HASH) == keyHash && keyMatches(slot, key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyMatches(int slot, byte[] key) throws IOException {
+        ByteBuffer record = record(slot);
+        return record.getInt(0) == key.length && slice(record, 4, key.length).equals(ByteBuffer.wrap(key));
+    }
+
+    private ByteBuffer record(int slot) throws IOException {
+        int base = slotBase(slot);
+        int segment = index.getInt(base + SLOT_SEGMENT);
+        long offset = index.getLong(base + SLOT_OFFSET);
+        return slice(segment(segment), (int) offset, index.getInt(base + SLOT_LENGTH));
+    }
+
+    private MappedByteBuffer segment(int number) throws IOException {
+        while (segments.size() <= number) {
+            segments.add(null);
+        }
+
+        MappedByteBuffer segment = segments.get(number);
+        if (segment == null) {
+            Path file = directory.resolve(String.format("data-%05d.seg", number));
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            }
+            segments.set(number, segment);
+        }
+        return segment;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset).limit(offset + length);
+        return view.slice();
+    }
+
+    private int slotLength(int slot) {
+        return index.getInt(slotBase(slot) + SLOT_LENGTH);
+    }
+
+    private int usedSlots() {
+        return index.getInt(HDR_USED_SLOTS);
+    }
+
+    private static int slotBase(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
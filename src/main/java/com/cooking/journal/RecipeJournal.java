@@ -0,0 +1,311 @@
+package com.cooking.journal;
+
+import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only journal of recipe requests and responses, one JSON object per line.
+ *
+ * <p>{@link #append} only enqueues the entry, so callers (LoggingActor) never block on disk.
+ * A single writer thread drains whatever has queued up since its last write, encodes it as one
+ * batch and hands it to the {@link FileChannel} in a single write (group commit). Segments
+ * ({@code journal-NNNNN.ndjson}) are rotated once they reach the configured size.
+ *
+ * <p>When the queue is full, entries are dropped and counted rather than applying
+ * back-pressure to the actor system.
+ */
+public class RecipeJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(RecipeJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".ndjson";
+
+    public enum FsyncPolicy {
+        /** Leave flushing to the OS page cache */
+        NEVER,
+        /** fsync after every batch, so an appended entry is durable once its batch is written */
+        BATCH,
+        /** fsync at most once per configured interval; an interval of 0 or less behaves as BATCH */
+        INTERVAL
+    }
+
+    private static final class Entry {
+        final long timestampMillis;
+        final RecipeRequest request;
+        final String response;
+
+        Entry(long timestampMillis, RecipeRequest request, String response) {
+            this.timestampMillis = timestampMillis;
+            this.request = request;
+            this.response = response;
+        }
+    }
+
+    // Queued by close(); FileChannel writes are interruptible, so the writer is never interrupted
+    private static final Entry SHUTDOWN = new Entry(0, null, null);
+
+    private final Path directory;
+    private final long segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    // Writer thread state
+    private FileChannel channel;
+    private int segmentNumber;
+    private long segmentBytes;
+    private long lastFsyncNanos = System.nanoTime();
+    private boolean unsynced = false;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+
+    public RecipeJournal(Path directory, long segmentSize, FsyncPolicy fsyncPolicy,
+                         Duration fsyncInterval, int queueCapacity, int maxBatch) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        // A zero interval would make the writer's poll time out at once and spin; syncing
+        // after every batch is what it asks for anyway
+        this.fsyncPolicy = fsyncPolicy == FsyncPolicy.INTERVAL && fsyncInterval.toNanos() <= 0
+                ? FsyncPolicy.BATCH
+                : fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Files.createDirectories(directory);
+        this.segmentNumber = lastSegmentNumber(directory);
+        openNextSegment();
+
+        this.writer = new Thread(this::runWriter, "recipe-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens the journal configured under cooking.journal, or returns null when it is disabled.
+     */
+    public static RecipeJournal fromConfig() throws IOException {
+        if (!ConfigLoader.isJournalEnabled()) {
+            return null;
+        }
+        return new RecipeJournal(
+                Paths.get(ConfigLoader.getJournalDirectory()),
+                ConfigLoader.getJournalSegmentSize(),
+                FsyncPolicy.valueOf(ConfigLoader.getJournalFsyncPolicy().toUpperCase(Locale.ROOT)),
+                ConfigLoader.getJournalFsyncInterval(),
+                ConfigLoader.getJournalQueueCapacity(),
+                ConfigLoader.getJournalMaxBatch()
+        );
+    }
+
+    /**
+     * Queues an entry for the writer thread. Never blocks; returns false if the
+     * entry was dropped because the queue is full or the journal is closed.
+     */
+    public boolean append(RecipeRequest request, String response) {
+        if (closed || !queue.offer(new Entry(System.currentTimeMillis(), request, response))) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public long appendedCount() {
+        return appended.get();
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public long batchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Stops accepting entries, writes out everything already queued and syncs the segment.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            if (queue.offer(SHUTDOWN, 10, TimeUnit.SECONDS)) {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            throw new IOException("Recipe journal writer did not finish within 10 seconds");
+        }
+    }
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>(maxBatch);
+        boolean running = true;
+        try {
+            while (running) {
+                Entry first = queue.poll(pollTimeoutNanos(), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+                    running = !batch.remove(SHUTDOWN);
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                syncIfDue();
+            }
+
+            // Entries that raced with close() and landed behind the shutdown marker
+            while (queue.drainTo(batch, maxBatch) > 0) {
+                batch.remove(SHUTDOWN);
+                writeBatch(batch);
+                batch.clear();
+            }
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                sync();
+            }
+        } catch (InterruptedException e) {
+            log.warn("Recipe journal writer interrupted, {} entries not written", queue.size());
+        } catch (IOException e) {
+            log.error("Recipe journal write failed, journaling stopped: {}", e.getMessage());
+        } finally {
+            closed = true;
+            queue.clear();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to do
+            }
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        buffer.clear();
+        for (Entry entry : batch) {
+            byte[] line = encode(entry);
+            if (segmentBytes + buffer.position() + line.length > segmentSize && segmentBytes + buffer.position() > 0) {
+                flushBuffer();
+                rotate();
+            }
+            if (line.length > buffer.remaining()) {
+                flushBuffer();
+                if (line.length > buffer.capacity()) {
+                    buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(line.length) << 1);
+                }
+            }
+            buffer.put(line);
+        }
+        flushBuffer();
+
+        appended.addAndGet(batch.size());
+        batches.incrementAndGet();
+        unsynced = true;
+        if (fsyncPolicy == FsyncPolicy.BATCH) {
+            sync();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmentBytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void syncIfDue() throws IOException {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && unsynced
+                && System.nanoTime() - lastFsyncNanos >= fsyncIntervalNanos) {
+            sync();
+        }
+    }
+
+    private void sync() throws IOException {
+        channel.force(false);
+        lastFsyncNanos = System.nanoTime();
+        unsynced = false;
+    }
+
+    // With the interval policy the writer must wake up in time to sync an idle tail
+    private long pollTimeoutNanos() {
+        return fsyncPolicy == FsyncPolicy.INTERVAL ? fsyncIntervalNanos : TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private void rotate() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            sync();
+        }
+        channel.close();
+        openNextSegment();
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentNumber++;
+        Path file = directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentBytes = 0;
+        log.info("📓 Recipe journal writing to {}", file);
+    }
+
+    private static byte[] encode(Entry entry) {
+        JSONObject json = new JSONObject()
+                .put("timestamp", Instant.ofEpochMilli(entry.timestampMillis).toString())
+                .put("query", entry.request.getQuery())
+                .put("dietaryPreference", entry.request.getDietaryPreference() == null
+                        ? JSONObject.NULL : entry.request.getDietaryPreference())
+                .put("needSubstitutions", entry.request.isNeedSubstitutions())
+                .put("response", entry.response);
+        return (json.toString() + '\n').getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Each run starts a fresh segment after the highest existing one
+    private static int lastSegmentNumber(Path directory) throws IOException {
+        int last = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                try {
+                    last = Math.max(last, Integer.parseInt(number));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        return last;
+    }
+}
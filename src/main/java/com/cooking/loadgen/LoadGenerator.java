@@ -0,0 +1,317 @@
+package com.cooking.loadgen;
+
+import akka.actor.Address;
+import akka.actor.AddressFromURIString;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Props;
+import akka.actor.typed.javadsl.AskPattern;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Routers;
+import akka.actor.typed.receptionist.Receptionist;
+import akka.cluster.typed.Cluster;
+import akka.cluster.typed.JoinSeedNodes;
+import com.cooking.actor.RecipeFinder;
+import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the RecipeFinders of a running cluster.
+ *
+ * <p>Joins the cluster as a "loadgen" member, finds every RecipeFinder through the
+ * Receptionist and sends ask-pattern requests round-robin at a fixed arrival rate.
+ * Request i is due at {@code start + i / rps} no matter how many earlier requests are
+ * still outstanding, so a slow cluster cannot slow the generator down.
+ *
+ * <p>Latency is measured from the intended send time, not the actual one, so time a
+ * request spent waiting behind a stalled sender counts against the cluster
+ * (coordinated-omission correction). The uncorrected latency, from the actual send,
+ * is reported next to it. Only requests due after the warmup are recorded.
+ */
+public class LoadGenerator {
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final Duration DISCOVERY_TIMEOUT = Duration.ofSeconds(60);
+    private static final DateTimeFormatter REPORT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final double rps;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Duration askTimeout;
+    private final QueryMix mix;
+
+    private final Recorder corrected = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Recorder uncorrected = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final AtomicLong outstanding = new AtomicLong();
+    private long sent;
+    private long maxSendLagNanos;
+
+    public LoadGenerator(double rps, Duration warmup, Duration duration, Duration askTimeout, QueryMix mix) {
+        if (rps <= 0) {
+            throw new IllegalArgumentException("Request rate must be positive: " + rps);
+        }
+        this.rps = rps;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.askTimeout = askTimeout;
+        this.mix = mix;
+    }
+
+    /**
+     * Entry point for {@code java Main loadgen [rps] [duration-seconds] [queries-file]};
+     * anything not given on the command line comes from cooking.loadgen.
+     */
+    public static void run(String[] args) {
+        double rps = args.length > 1 ? Double.parseDouble(args[1]) : ConfigLoader.getLoadgenRps();
+        Duration duration = args.length > 2 ? Duration.ofSeconds(Long.parseLong(args[2])) : ConfigLoader.getLoadgenDuration();
+        String queriesFile = args.length > 3 ? args[3] : ConfigLoader.getLoadgenQueriesFile();
+
+        QueryMix mix;
+        try {
+            mix = QueryMix.load(queriesFile);
+        } catch (IOException e) {
+            System.err.println("❌ Cannot load query mix: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        LoadGenerator generator = new LoadGenerator(rps, ConfigLoader.getLoadgenWarmup(), duration,
+                ConfigLoader.getLoadgenAskTimeout(), mix);
+        System.exit(generator.runAgainstCluster() ? 0 : 1);
+    }
+
+    /**
+     * Joins the cluster, runs warmup and measurement, writes the report and leaves.
+     * Returns false if no RecipeFinder could be found.
+     */
+    public boolean runAgainstCluster() {
+        Config config = ConfigFactory.parseString(
+                "akka.remote.artery.canonical.port=" + ConfigLoader.getLoadgenPort() + "\n" +
+                        "akka.cluster.roles=[\"loadgen\"]"
+        ).withFallback(ConfigFactory.load());
+
+        ActorSystem<Void> system = ActorSystem.create(Behaviors.empty(), ConfigLoader.getSystemName(), config);
+        try {
+            List<Address> seedNodes = new ArrayList<>();
+            for (String seedNode : ConfigLoader.getSeedNodes()) {
+                seedNodes.add(AddressFromURIString.parse(seedNode));
+            }
+            Cluster.get(system).manager().tell(new JoinSeedNodes(seedNodes));
+
+            int finders = awaitRecipeFinders(system);
+            if (finders == 0) {
+                log.error("❌ No RecipeFinder registered within {}s; is node1 running?", DISCOVERY_TIMEOUT.getSeconds());
+                return false;
+            }
+            log.info("🎯 Found {} RecipeFinder(s); sending {} req/s ({} queries in the mix)", finders, rps, mix.size());
+
+            ActorRef<RecipeFinder.Command> finder = system.systemActorOf(
+                    Routers.group(RecipeFinder.SERVICE_KEY).withRoundRobinRouting(), "loadgenRouter", Props.empty());
+
+            Path report = generate(system, finder);
+            log.info("📄 Load report written to {}", report.toAbsolutePath());
+            return true;
+        } catch (IOException e) {
+            log.error("❌ Failed to write load report: {}", e.getMessage());
+            return false;
+        } finally {
+            system.terminate();
+        }
+    }
+
+    private int awaitRecipeFinders(ActorSystem<Void> system) {
+        long deadline = System.nanoTime() + DISCOVERY_TIMEOUT.toNanos();
+        while (System.nanoTime() - deadline < 0) {
+            CompletionStage<Receptionist.Listing> listing = AskPattern.ask(
+                    system.receptionist(),
+                    replyTo -> Receptionist.find(RecipeFinder.SERVICE_KEY, replyTo),
+                    Duration.ofSeconds(5),
+                    system.scheduler());
+            try {
+                Set<ActorRef<RecipeFinder.Command>> finders =
+                        listing.toCompletableFuture().get().getServiceInstances(RecipeFinder.SERVICE_KEY);
+                if (!finders.isEmpty()) {
+                    return finders.size();
+                }
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            } catch (Exception e) {
+                log.debug("Receptionist lookup failed: {}", e.getMessage());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sends the load from the calling thread and returns the report file.
+     */
+    Path generate(ActorSystem<?> system, ActorRef<RecipeFinder.Command> finder) throws IOException {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        long start = System.nanoTime();
+        long measureStart = start + warmup.toNanos();
+        long end = measureStart + duration.toNanos();
+
+        log.info("🔥 Warming up for {}s, then measuring for {}s", warmup.getSeconds(), duration.getSeconds());
+        boolean measuring = false;
+
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended - end >= 0) {
+                break;
+            }
+            if (!measuring && intended - measureStart >= 0) {
+                measuring = true;
+                log.info("📏 Warmup done, measuring");
+            }
+
+            // Sleep until the request is due; when behind, send right away to catch up
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            send(system, finder, mix.next(), intended, measuring);
+        }
+
+        awaitOutstanding();
+        return writeReport(Paths.get(ConfigLoader.getLoadgenReportDirectory()));
+    }
+
+    private void send(ActorSystem<?> system, ActorRef<RecipeFinder.Command> finder,
+                      RecipeRequest request, long intendedNanos, boolean measured) {
+        long sentNanos = System.nanoTime();
+        maxSendLagNanos = Math.max(maxSendLagNanos, sentNanos - intendedNanos);
+        sent++;
+        outstanding.incrementAndGet();
+
+        CompletionStage<RecipeFinder.RecipeResponse> reply = AskPattern.ask(
+                finder,
+                replyTo -> new RecipeFinder.FindRecipeWithAsk(request, replyTo),
+                askTimeout,
+                system.scheduler());
+
+        reply.whenComplete((response, failure) -> {
+            long now = System.nanoTime();
+            outstanding.decrementAndGet();
+            if (!measured) {
+                return;
+            }
+
+            // Timed-out requests are recorded too (at about the ask timeout) so they show in the tail
+            if (failure != null) {
+                timedOut.increment();
+            } else if (response.processingMethod.contains("(failed)")) {
+                failed.increment();
+            } else {
+                succeeded.increment();
+            }
+            corrected.recordValue(toMicros(now - intendedNanos));
+            uncorrected.recordValue(toMicros(now - sentNanos));
+        });
+    }
+
+    // Replies come back within the ask timeout or fail with it, so this is bounded
+    private void awaitOutstanding() {
+        long deadline = System.nanoTime() + askTimeout.toNanos() + TimeUnit.SECONDS.toNanos(5);
+        while (outstanding.get() > 0 && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        if (outstanding.get() > 0) {
+            log.warn("⚠️ {} requests still outstanding at the end of the run", outstanding.get());
+        }
+    }
+
+    private Path writeReport(Path directory) throws IOException {
+        Histogram correctedHistogram = corrected.getIntervalHistogram();
+        Histogram uncorrectedHistogram = uncorrected.getIntervalHistogram();
+        long completed = succeeded.sum() + failed.sum() + timedOut.sum();
+
+        Files.createDirectories(directory);
+        Path file = directory.resolve("loadgen-" + LocalDateTime.now().format(REPORT_TIMESTAMP) + ".txt");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8.name())) {
+            out.println("Smart Cooking Assistant load report");
+            out.println("===================================");
+            out.printf(Locale.ROOT, "Requested rate:     %.2f req/s%n", rps);
+            out.printf(Locale.ROOT, "Achieved rate:      %.2f req/s (measured, completed)%n",
+                    completed / (double) duration.getSeconds());
+            out.printf(Locale.ROOT, "Warmup / measured:  %ds / %ds%n", warmup.getSeconds(), duration.getSeconds());
+            out.printf(Locale.ROOT, "Queries in mix:     %d%n", mix.size());
+            out.printf(Locale.ROOT, "Sent (incl. warmup): %d%n", sent);
+            out.printf(Locale.ROOT, "Succeeded:          %d%n", succeeded.sum());
+            out.printf(Locale.ROOT, "Failed:             %d%n", failed.sum());
+            out.printf(Locale.ROOT, "Timed out (>%ds):   %d%n", askTimeout.getSeconds(), timedOut.sum());
+            out.printf(Locale.ROOT, "Max sender lag:     %.1f ms%n", maxSendLagNanos / 1e6);
+            out.println();
+
+            summary(out, "Latency from intended send (corrected for coordinated omission)", correctedHistogram);
+            summary(out, "Latency from actual send (uncorrected)", uncorrectedHistogram);
+
+            out.println("Corrected percentile distribution (ms)");
+            correctedHistogram.outputPercentileDistribution(out, 5, 1000.0);
+            out.println();
+            out.println("Uncorrected percentile distribution (ms)");
+            uncorrectedHistogram.outputPercentileDistribution(out, 5, 1000.0);
+        }
+
+        log.info("📊 {} measured requests: p50 {} ms, p99 {} ms, max {} ms (corrected)",
+                correctedHistogram.getTotalCount(),
+                millis(correctedHistogram.getValueAtPercentile(50)),
+                millis(correctedHistogram.getValueAtPercentile(99)),
+                millis(correctedHistogram.getMaxValue()));
+        return file;
+    }
+
+    private static void summary(PrintStream out, String title, Histogram histogram) {
+        out.println(title);
+        if (histogram.getTotalCount() == 0) {
+            out.println("  no measured requests");
+        } else {
+            out.printf(Locale.ROOT, "  p50 %s  p90 %s  p99 %s  p99.9 %s  max %s (ms)%n",
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+        out.println();
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.1f", micros / 1000.0);
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)), HIGHEST_TRACKABLE_MICROS);
+    }
+}
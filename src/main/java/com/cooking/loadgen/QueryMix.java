@@ -0,0 +1,107 @@
+package com.cooking.loadgen;
+
+import com.cooking.model.RecipeRequest;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Request mix for the load generator, read from a JSON-lines file with one request per line:
+ * <pre>{"query": "pasta carbonara", "dietaryPreference": "none", "needSubstitutions": false, "weight": 3}</pre>
+ * {@code dietaryPreference}, {@code needSubstitutions} and {@code weight} are optional.
+ * Requests are drawn at random in proportion to their weight, from a fixed seed so runs
+ * send the same sequence.
+ */
+public class QueryMix {
+    private static final String BUNDLED_MIX = "/loadgen-queries.jsonl";
+
+    private final RecipeRequest[] requests;
+    private final int[] cumulativeWeights;
+    private final Random random = new Random(42);
+
+    private QueryMix(List<RecipeRequest> requests, List<Integer> weights) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("Query mix is empty");
+        }
+
+        this.requests = requests.toArray(new RecipeRequest[0]);
+        this.cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        for (int i = 0; i < weights.size(); i++) {
+            total += weights.get(i);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Loads the mix from a file, or the bundled sample mix when {@code path} is null or empty.
+     */
+    public static QueryMix load(String path) throws IOException {
+        if (path == null || path.isEmpty()) {
+            try (InputStream in = QueryMix.class.getResourceAsStream(BUNDLED_MIX)) {
+                if (in == null) {
+                    throw new IOException("Bundled query mix " + BUNDLED_MIX + " not found");
+                }
+                return parse(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), BUNDLED_MIX);
+            }
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            return parse(reader, path);
+        }
+    }
+
+    private static QueryMix parse(BufferedReader reader, String source) throws IOException {
+        List<RecipeRequest> requests = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            try {
+                JSONObject json = new JSONObject(line);
+                requests.add(new RecipeRequest(
+                        json.getString("query"),
+                        json.optString("dietaryPreference", "none"),
+                        json.optBoolean("needSubstitutions", false)));
+                weights.add(Math.max(1, json.optInt("weight", 1)));
+            } catch (Exception e) {
+                throw new IOException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        return new QueryMix(requests, weights);
+    }
+
+    public int size() {
+        return requests.length;
+    }
+
+    /**
+     * Next request of the mix. Only called from the load generator's sender thread.
+     */
+    public RecipeRequest next() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return requests[i];
+            }
+        }
+        return requests[requests.length - 1];
+    }
+}
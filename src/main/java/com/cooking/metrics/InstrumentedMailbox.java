@@ -0,0 +1,88 @@
+package com.cooking.metrics;
+
+import akka.actor.ActorPath;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import com.typesafe.config.Config;
+import scala.Option;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unbounded mailbox that publishes its depth as cooking_mailbox_depth{actor=...}.
+ * Select it with {@link Metrics#instrumentedMailbox()} when spawning an actor.
+ * Anonymous children (such as pool routees) report under their parent's name,
+ * so a pool shows up as one summed series.
+ */
+public class InstrumentedMailbox implements MailboxType, ProducesMessageQueue<InstrumentedMailbox.InstrumentedQueue> {
+
+    public InstrumentedMailbox(ActorSystem.Settings settings, Config config) {
+        // No settings: the mailbox is configured only by its mailbox-type
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        String actor = owner.isDefined() ? actorName(owner.get().path()) : "unknown";
+        return new InstrumentedQueue(Metrics.gauge("cooking_mailbox_depth",
+                "Messages waiting in the mailbox, per actor", "actor", actor));
+    }
+
+    private static String actorName(ActorPath path) {
+        while (path.name().startsWith("$") && path.parent() != path) {
+            path = path.parent();
+        }
+        return path.name();
+    }
+
+    public static final class InstrumentedQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+        private final ConcurrentLinkedQueue<Envelope> queue = new ConcurrentLinkedQueue<>();
+        // The queue's own size() is O(n), so keep a separate count
+        private final AtomicInteger size = new AtomicInteger();
+        private final Metrics.Gauge depth;
+
+        InstrumentedQueue(Metrics.Gauge depth) {
+            this.depth = depth;
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            queue.offer(handle);
+            size.incrementAndGet();
+            depth.increment();
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Envelope envelope = queue.poll();
+            if (envelope != null) {
+                size.decrementAndGet();
+                depth.decrement();
+            }
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return size.get();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            Envelope envelope;
+            while ((envelope = dequeue()) != null) {
+                deadLetters.enqueue(owner, envelope);
+            }
+        }
+    }
+}
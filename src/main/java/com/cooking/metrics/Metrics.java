@@ -0,0 +1,279 @@
+package com.cooking.metrics;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.BehaviorInterceptor;
+import akka.actor.typed.MailboxSelector;
+import akka.actor.typed.Props;
+import akka.actor.typed.TypedActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide metrics registry, rendered in the Prometheus text exposition format.
+ *
+ * <p>Metrics are looked up by family name plus label pairs and created on first use;
+ * callers should keep the returned instance rather than looking it up per event.
+ * Latencies are recorded into HdrHistogram {@link Recorder}s, so recording is
+ * wait-free and safe from any thread.
+ */
+public final class Metrics {
+    // Config path of the instrumented mailbox (see InstrumentedMailbox)
+    public static final String MAILBOX_CONFIG_PATH = "cooking.metrics.mailbox";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), SUMMARY("summary");
+
+        final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private interface Metric {
+        void render(StringBuilder out, String name, String labels);
+    }
+
+    private static final class Family {
+        final String help;
+        final Type type;
+        final Map<String, Metric> series = new ConcurrentSkipListMap<>();
+
+        Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Monotonic counter.
+     */
+    public static final class Counter implements Metric {
+        private final LongAdder count = new LongAdder();
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        @Override
+        public void render(StringBuilder out, String name, String labels) {
+            sample(out, name, labels, count.sum());
+        }
+    }
+
+    /**
+     * Gauge that is set or moved up and down by its owner.
+     */
+    public static final class Gauge implements Metric {
+        private final AtomicLong value = new AtomicLong();
+
+        public void set(long newValue) {
+            value.set(newValue);
+        }
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void decrement() {
+            value.decrementAndGet();
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        public void render(StringBuilder out, String name, String labels) {
+            sample(out, name, labels, value.get());
+        }
+    }
+
+    private static final class SuppliedGauge implements Metric {
+        private final DoubleSupplier supplier;
+
+        SuppliedGauge(DoubleSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void render(StringBuilder out, String name, String labels) {
+            sample(out, name, labels, supplier.getAsDouble());
+        }
+    }
+
+    /**
+     * Latency distribution exported as a summary in seconds. Quantiles cover the
+     * observations since the previous scrape; _count and _sum are cumulative.
+     */
+    public static final class Timer implements Metric {
+        private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder sumMicros = new LongAdder();
+        private final Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private Histogram interval;
+
+        public void record(long durationNanos) {
+            long micros = Math.min(Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos)), HIGHEST_TRACKABLE_MICROS);
+            recorder.recordValue(micros);
+            sumMicros.add(micros);
+        }
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        @Override
+        public synchronized void render(StringBuilder out, String name, String labels) {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+
+            for (double quantile : QUANTILES) {
+                String quantileLabels = withLabel(labels, "quantile", Double.toString(quantile));
+                double value = interval.getTotalCount() == 0
+                        ? Double.NaN
+                        : interval.getValueAtPercentile(quantile * 100) / 1e6;
+                sample(out, name, quantileLabels, value);
+            }
+            sample(out, name + "_sum", labels, sumMicros.sum() / 1e6);
+            sample(out, name + "_count", labels, total.getTotalCount());
+        }
+    }
+
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, Type.COUNTER, labels, Counter::new);
+    }
+
+    public static Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) register(name, help, Type.GAUGE, labels, Gauge::new);
+    }
+
+    /**
+     * Gauge computed at scrape time. Registering the same series again replaces the supplier.
+     */
+    public static void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        family(name, help, Type.GAUGE).series.put(labelText(labels), new SuppliedGauge(supplier));
+    }
+
+    public static Timer timer(String name, String help, String... labels) {
+        return (Timer) register(name, help, Type.SUMMARY, labels, Timer::new);
+    }
+
+    /**
+     * Wraps a behavior so the time spent handling each message is recorded per actor
+     * in cooking_actor_processing_seconds.
+     */
+    public static <T> Behavior<T> timed(String actor, Class<T> messageClass, Behavior<T> behavior) {
+        Timer timer = timer("cooking_actor_processing_seconds",
+                "Time spent handling one message, per actor", "actor", actor);
+        return Behaviors.intercept(() -> new BehaviorInterceptor<T, T>(messageClass) {
+            @Override
+            public Behavior<T> aroundReceive(TypedActorContext<T> ctx, T msg, ReceiveTarget<T> target) {
+                long start = System.nanoTime();
+                try {
+                    return target.apply(ctx, msg);
+                } finally {
+                    timer.recordSince(start);
+                }
+            }
+        }, behavior);
+    }
+
+    /**
+     * Spawn props for the instrumented mailbox, which reports its depth in cooking_mailbox_depth.
+     */
+    public static Props instrumentedMailbox() {
+        return MailboxSelector.fromConfig(MAILBOX_CONFIG_PATH);
+    }
+
+    /**
+     * Renders every registered metric in the Prometheus text format (version 0.0.4).
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            out.append("# HELP ").append(entry.getKey()).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(entry.getKey()).append(' ').append(family.type.text).append('\n');
+            for (Map.Entry<String, Metric> series : family.series.entrySet()) {
+                series.getValue().render(out, entry.getKey(), series.getKey());
+            }
+        }
+        return out.toString();
+    }
+
+    private interface MetricFactory {
+        Metric create();
+    }
+
+    private static Metric register(String name, String help, Type type, String[] labels, MetricFactory factory) {
+        return family(name, help, type).series.computeIfAbsent(labelText(labels), key -> factory.create());
+    }
+
+    private static Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.text);
+        }
+        return family;
+    }
+
+    private static String labelText(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+
+        String text = "";
+        for (int i = 0; i < labels.length; i += 2) {
+            text = withLabel(text, labels[i], labels[i + 1]);
+        }
+        return text;
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        String label = name + "=\"" + escaped + "\"";
+        return labels.isEmpty() ? label : labels + "," + label;
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.6g", value);
+    }
+}
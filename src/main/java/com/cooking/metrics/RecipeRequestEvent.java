@@ -0,0 +1,86 @@
+package com.cooking.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event committed by RecipeFinder when a generation completes, with its full
+ * stage breakdown. The event spans the generation from dispatch to reply.
+ */
+@Name("com.cooking.RecipeRequest")
+@Label("Recipe Request")
+@Category({"Smart Cooking", "Requests"})
+@Description("One recipe generation from RecipeFinder dispatch to its reply, broken down by stage")
+@StackTrace(false)
+public class RecipeRequestEvent extends Event {
+    @Label("Request ID")
+    public long requestId;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Waiters")
+    @Description("Requests coalesced onto this generation")
+    public int waiters;
+
+    @Label("LLM Queue")
+    @Timespan(Timespan.NANOSECONDS)
+    public long llmQueue;
+
+    @Label("Prompt")
+    @Timespan(Timespan.NANOSECONDS)
+    public long prompt;
+
+    @Label("Dispatch")
+    @Timespan(Timespan.NANOSECONDS)
+    public long dispatch;
+
+    @Label("Connect")
+    @Timespan(Timespan.NANOSECONDS)
+    public long connect;
+
+    @Label("Prefill")
+    @Timespan(Timespan.NANOSECONDS)
+    public long prefill;
+
+    @Label("Decode")
+    @Timespan(Timespan.NANOSECONDS)
+    public long decode;
+
+    @Label("Parse")
+    @Timespan(Timespan.NANOSECONDS)
+    public long parse;
+
+    @Label("Completion")
+    @Timespan(Timespan.NANOSECONDS)
+    public long completion;
+
+    @Label("Reply")
+    @Timespan(Timespan.NANOSECONDS)
+    public long reply;
+
+    @Label("Limit Queue")
+    @Timespan(Timespan.NANOSECONDS)
+    public long limitQueue;
+
+    /**
+     * Copies the stage breakdown from the timing record.
+     */
+    public void setStages(RequestTiming timing) {
+        llmQueue = timing.stageNanos(RequestTiming.Stage.LLM_QUEUE);
+        prompt = timing.stageNanos(RequestTiming.Stage.PROMPT);
+        dispatch = timing.stageNanos(RequestTiming.Stage.DISPATCH);
+        connect = timing.stageNanos(RequestTiming.Stage.CONNECT);
+        prefill = timing.stageNanos(RequestTiming.Stage.PREFILL);
+        decode = timing.stageNanos(RequestTiming.Stage.DECODE);
+        parse = timing.stageNanos(RequestTiming.Stage.PARSE);
+        completion = timing.stageNanos(RequestTiming.Stage.COMPLETION);
+        reply = timing.stageNanos(RequestTiming.Stage.REPLY);
+        limitQueue = timing.stageNanos(RequestTiming.Stage.LIMIT_QUEUE);
+    }
+}
@@ -0,0 +1,30 @@
+package com.cooking.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event committed when a recipe generation finishes one stage of the request path
+ * (see {@link RequestTiming.Stage}), on the thread and node where that stage ended.
+ */
+@Name("com.cooking.RecipeStage")
+@Label("Recipe Stage")
+@Category({"Smart Cooking", "Requests"})
+@Description("Time one recipe generation spent in a stage of the request path")
+@StackTrace(false)
+public class RecipeStageEvent extends Event {
+    @Label("Request ID")
+    public long requestId;
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Stage Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long stageDuration;
+}
@@ -0,0 +1,266 @@
+package com.cooking.metrics;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Per-generation latency breakdown, carried RecipeFinder → LLMActor → client and back
+ * inside the LLM messages.
+ *
+ * <p>Stages that run in one JVM are measured with a lap clock: {@link #received()} starts it
+ * and each {@link #lap(Stage)} charges the time since the previous mark to a stage, so
+ * the stages add up to the end-to-end time. The two hops between actors may cross nodes
+ * and are measured with wall-clock stamps instead, which are only as accurate as the
+ * clock sync between those nodes.
+ *
+ * <p>Every stage also commits a {@link RecipeStageEvent} to Java Flight Recorder when
+ * that event is enabled.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.NONE,
+        getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+public final class RequestTiming {
+
+    // New stages go last: timings cross the wire as arrays indexed by ordinal
+    public enum Stage {
+        /** RecipeFinder dispatch until LLMActor handles the request: transport and mailbox wait */
+        LLM_QUEUE,
+        /** Building the prompt in LLMActor */
+        PROMPT,
+        /** HTTP client dispatcher queue until the call looks for a connection */
+        DISPATCH,
+        /** Connection pool, DNS, TCP and TLS until the request headers go out */
+        CONNECT,
+        /** Request sent until the first token (non-streaming: until the response headers) */
+        PREFILL,
+        /** First token until the last one (non-streaming: reading the response body) */
+        DECODE,
+        /** JSON parsing of the response */
+        PARSE,
+        /** Client completion until LLMActor handles the result */
+        COMPLETION,
+        /** LLMActor reply until RecipeFinder handles it: transport and mailbox wait */
+        REPLY,
+        /** Waiting for a slot under the adaptive concurrency limit */
+        LIMIT_QUEUE;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Shared no-op instance for untraced calls */
+    public static final RequestTiming NONE = new RequestTiming(-1L, 0L, 0L, new long[Stage.values().length], false);
+
+    @JsonProperty
+    private final long requestId;
+    @JsonProperty
+    private final long dispatchedAtMicros;
+    @JsonProperty
+    private long repliedAtMicros;
+    @JsonProperty
+    private final long[] stageNanos;
+
+    private final boolean traced;
+    // A fork for one of several concurrent attempts: collects stages without JFR events until joined
+    private final boolean attempt;
+    // Lap clock; only meaningful within one JVM
+    private long markNanos;
+
+    @JsonCreator
+    RequestTiming(@JsonProperty("requestId") long requestId,
+                  @JsonProperty("dispatchedAtMicros") long dispatchedAtMicros,
+                  @JsonProperty("repliedAtMicros") long repliedAtMicros,
+                  @JsonProperty("stageNanos") long[] stageNanos) {
+        this(requestId, dispatchedAtMicros, repliedAtMicros, stageNanos, true);
+    }
+
+    private RequestTiming(long requestId, long dispatchedAtMicros, long repliedAtMicros,
+                          long[] stageNanos, boolean traced) {
+        this(requestId, dispatchedAtMicros, repliedAtMicros, stageNanos, traced, false);
+    }
+
+    private RequestTiming(long requestId, long dispatchedAtMicros, long repliedAtMicros,
+                          long[] stageNanos, boolean traced, boolean attempt) {
+        this.requestId = requestId;
+        this.dispatchedAtMicros = dispatchedAtMicros;
+        this.repliedAtMicros = repliedAtMicros;
+        this.stageNanos = stageNanos;
+        this.traced = traced;
+        this.attempt = attempt;
+    }
+
+    /**
+     * Starts the timing of a generation as it is dispatched to an LLM worker.
+     */
+    public static RequestTiming dispatched(long requestId) {
+        return new RequestTiming(requestId, epochMicros(), 0L, new long[Stage.values().length], true);
+    }
+
+    public static RequestTiming orNone(RequestTiming timing) {
+        return timing != null ? timing : NONE;
+    }
+
+    /**
+     * Rebuilds a timing that crossed the wire. Stages missing from {@code stageNanos} (a node
+     * with fewer stages) count as zero, and stages this node does not know are dropped.
+     */
+    public static RequestTiming restore(long requestId, long dispatchedAtMicros, long repliedAtMicros,
+                                        long[] stageNanos) {
+        return new RequestTiming(requestId, dispatchedAtMicros, repliedAtMicros,
+                Arrays.copyOf(stageNanos, Stage.values().length));
+    }
+
+    public long requestId() {
+        return requestId;
+    }
+
+    public long dispatchedAtMicros() {
+        return dispatchedAtMicros;
+    }
+
+    public synchronized long repliedAtMicros() {
+        return repliedAtMicros;
+    }
+
+    /**
+     * Copy of the per-stage nanos, indexed by {@link Stage#ordinal()}.
+     */
+    public synchronized long[] stageNanos() {
+        return stageNanos.clone();
+    }
+
+    public synchronized long stageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * Called by the LLM worker on receipt: charges LLM_QUEUE and starts the lap clock.
+     */
+    public synchronized void received() {
+        if (traced) {
+            add(Stage.LLM_QUEUE, wallClockNanosSince(dispatchedAtMicros));
+            markNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Charges the time since the previous mark to the stage and restarts the clock.
+     */
+    public synchronized void lap(Stage stage) {
+        if (traced) {
+            long now = System.nanoTime();
+            add(stage, now - markNanos);
+            markNanos = now;
+        }
+    }
+
+    /**
+     * A lap clock of its own for one of several attempts running at once (e.g. a hedged
+     * call), starting where this one stands. {@link #join(RequestTiming)} the attempt whose
+     * result is used; the others are simply dropped.
+     */
+    public synchronized RequestTiming fork() {
+        if (!traced) {
+            return this;
+        }
+        RequestTiming fork = new RequestTiming(requestId, dispatchedAtMicros, 0L,
+                new long[Stage.values().length], true, true);
+        fork.markNanos = markNanos;
+        return fork;
+    }
+
+    /**
+     * Charges the stages an attempt from {@link #fork()} recorded to this timing and takes
+     * over its lap clock.
+     */
+    public synchronized void join(RequestTiming attempt) {
+        if (!traced || attempt == this) {
+            return;
+        }
+        long[] nanos;
+        long mark;
+        synchronized (attempt) {
+            nanos = attempt.stageNanos.clone();
+            mark = attempt.markNanos;
+        }
+        for (Stage stage : Stage.values()) {
+            if (nanos[stage.ordinal()] != 0L) {
+                add(stage, nanos[stage.ordinal()]);
+            }
+        }
+        markNanos = mark;
+    }
+
+    /**
+     * Like {@link #lap(Stage)} for a span that interleaves two stages: {@code nestedNanos}
+     * of it go to {@code nested} and the rest to {@code stage}.
+     */
+    public synchronized void lap(Stage stage, Stage nested, long nestedNanos) {
+        if (traced) {
+            long now = System.nanoTime();
+            add(stage, now - markNanos - nestedNanos);
+            add(nested, nestedNanos);
+            markNanos = now;
+        }
+    }
+
+    public synchronized void add(Stage stage, long nanos) {
+        if (!traced) {
+            return;
+        }
+        stageNanos[stage.ordinal()] += nanos;
+        if (attempt) {
+            return;
+        }
+
+        RecipeStageEvent event = new RecipeStageEvent();
+        if (event.isEnabled()) {
+            event.requestId = requestId;
+            event.stage = stage.label();
+            event.stageDuration = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Called by the LLM worker as it sends the result back to RecipeFinder.
+     */
+    public synchronized void replied() {
+        repliedAtMicros = epochMicros();
+    }
+
+    /**
+     * Called by RecipeFinder on receipt of the result: charges REPLY.
+     */
+    public synchronized void returned() {
+        if (traced && repliedAtMicros != 0L) {
+            add(Stage.REPLY, wallClockNanosSince(repliedAtMicros));
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder("RequestTiming[").append(requestId);
+        for (Stage stage : Stage.values()) {
+            text.append(' ').append(stage.label()).append('=')
+                    .append(String.format(Locale.ROOT, "%.1fms", stageNanos[stage.ordinal()] / 1e6));
+        }
+        return text.append(']').toString();
+    }
+
+    // Clock skew between nodes can make a hop look negative; count it as zero
+    private static long wallClockNanosSince(long epochMicros) {
+        return Math.max(0L, epochMicros() - epochMicros) * 1000;
+    }
+
+    private static long epochMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1000;
+    }
+}
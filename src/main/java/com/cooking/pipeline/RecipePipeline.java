@@ -0,0 +1,296 @@
+package com.cooking.pipeline;
+
+import akka.Done;
+import akka.NotUsed;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Scheduler;
+import akka.actor.typed.javadsl.AskPattern;
+import akka.stream.OverflowStrategy;
+import akka.stream.QueueOfferResult;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.stream.javadsl.SourceQueueWithComplete;
+import com.cooking.actor.RecipeFinder;
+import com.cooking.metrics.Metrics;
+import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backpressured intake for recipe requests, in front of a RecipeFinder:
+ *
+ * <pre>
+ * queue (buffer-size) → cache lookup (lookup-parallelism) ─┬→ deliver
+ *                                                         └→ generate (llm-parallelism) → deliver
+ * </pre>
+ *
+ * <p>At most {@code llm-parallelism} generations are in flight at once; the rest wait in
+ * the bounded queue, and once that is full {@link #submit} either fails at once with
+ * {@link RejectedException} ({@code drop-new}) or waits for room ({@code backpressure}).
+ * A surge therefore shows up as queue depth and rejections here instead of as an
+ * ever-growing LLMActor mailbox. Cache hits leave after the lookup stage and never wait
+ * behind a generation.
+ *
+ * <p>Thread-safe; {@link #submit} may be called from any thread.
+ */
+public class RecipePipeline implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RecipePipeline.class);
+
+    private final ActorRef<RecipeFinder.Command> recipeFinder;
+    private final Scheduler scheduler;
+    private final Duration askTimeout;
+    private final SourceQueueWithComplete<Submission> queue;
+    private final AtomicLong queued = new AtomicLong();
+
+    private final Metrics.Counter enqueued;
+    private final Metrics.Counter rejected;
+    private final Metrics.Counter deliveredFromCache;
+    private final Metrics.Counter deliveredGenerated;
+    private final Metrics.Counter deliveredFailed;
+    private final Metrics.Gauge generating;
+    private final Metrics.Timer queueTime;
+    private final Metrics.Timer lookupTime;
+    private final Metrics.Timer generateTime;
+    private final Metrics.Timer totalTime;
+
+    /**
+     * Thrown, or used to fail the returned stage, when the pipeline has no room for a request.
+     */
+    public static final class RejectedException extends IOException {
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Pipeline in front of {@code recipeFinder}, configured from cooking.pipeline.
+     */
+    public static RecipePipeline fromConfig(ActorSystem<?> system, ActorRef<RecipeFinder.Command> recipeFinder) {
+        return new RecipePipeline(system, recipeFinder,
+                ConfigLoader.getPipelineBufferSize(),
+                parseOverflowStrategy(ConfigLoader.getPipelineOverflowStrategy()),
+                ConfigLoader.getPipelineMaxConcurrentOffers(),
+                ConfigLoader.getPipelineLookupParallelism(),
+                ConfigLoader.getPipelineLlmParallelism(),
+                ConfigLoader.getPipelineAskTimeout());
+    }
+
+    public RecipePipeline(ActorSystem<?> system,
+                          ActorRef<RecipeFinder.Command> recipeFinder,
+                          int bufferSize,
+                          OverflowStrategy overflowStrategy,
+                          int maxConcurrentOffers,
+                          int lookupParallelism,
+                          int llmParallelism,
+                          Duration askTimeout) {
+        this.recipeFinder = recipeFinder;
+        this.scheduler = system.scheduler();
+        this.askTimeout = askTimeout;
+
+        String submissions = "cooking_pipeline_submissions_total";
+        String submissionsHelp = "Requests offered to the pipeline, by whether they were queued";
+        this.enqueued = Metrics.counter(submissions, submissionsHelp, "result", "enqueued");
+        this.rejected = Metrics.counter(submissions, submissionsHelp, "result", "rejected");
+
+        String delivered = "cooking_pipeline_delivered_total";
+        String deliveredHelp = "Requests answered by the pipeline, by where the answer came from";
+        this.deliveredFromCache = Metrics.counter(delivered, deliveredHelp, "outcome", "cache");
+        this.deliveredGenerated = Metrics.counter(delivered, deliveredHelp, "outcome", "generated");
+        this.deliveredFailed = Metrics.counter(delivered, deliveredHelp, "outcome", "failed");
+
+        String stage = "cooking_pipeline_stage_seconds";
+        String stageHelp = "Time requests spend in each pipeline stage";
+        this.queueTime = Metrics.timer(stage, stageHelp, "stage", "queue");
+        this.lookupTime = Metrics.timer(stage, stageHelp, "stage", "lookup");
+        this.generateTime = Metrics.timer(stage, stageHelp, "stage", "generate");
+        this.totalTime = Metrics.timer(stage, stageHelp, "stage", "total");
+
+        this.generating = Metrics.gauge("cooking_pipeline_generating", "Generations in flight from the pipeline");
+        Metrics.gauge("cooking_pipeline_queue_depth", "Requests waiting in the pipeline's intake queue",
+                queued::get);
+        Metrics.gauge("cooking_pipeline_buffer_size", "Capacity of the pipeline's intake queue",
+                () -> bufferSize);
+
+        Sink<Submission, NotUsed> deliver = Flow.<Submission>create().to(Sink.foreach(this::deliver));
+
+        this.queue = Source.<Submission>queue(bufferSize, overflowStrategy, maxConcurrentOffers)
+                .map(this::dequeued)
+                .mapAsyncUnordered(lookupParallelism, this::lookUp)
+                .divertTo(deliver, submission -> submission.response != null)
+                .mapAsyncUnordered(llmParallelism, this::generate)
+                .to(deliver)
+                .run(system);
+
+        queue.watchCompletion().whenComplete((done, failure) -> {
+            if (failure != null) {
+                log.error("🚰 Recipe pipeline failed: {}", failure.getMessage());
+            }
+        });
+
+        log.info("🚰 Recipe pipeline started: buffer {}, lookup parallelism {}, llm parallelism {}",
+                bufferSize, lookupParallelism, llmParallelism);
+    }
+
+    /**
+     * Only the strategies that answer every request: the others drop requests that are
+     * already queued, whose callers would then wait forever, or stop the whole pipeline.
+     */
+    static OverflowStrategy parseOverflowStrategy(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "drop-new":
+                return OverflowStrategy.dropNew();
+            case "backpressure":
+                return OverflowStrategy.backpressure();
+            default:
+                throw new IllegalArgumentException("Unsupported pipeline overflow strategy: " + name
+                        + " (use drop-new or backpressure)");
+        }
+    }
+
+    public CompletionStage<RecipeFinder.RecipeResponse> submit(RecipeRequest request) {
+        return submit(request, null);
+    }
+
+    /**
+     * Queues a request. The stage completes with the recipe, or fails with
+     * {@link RejectedException} if there is no room for it.
+     *
+     * @param chunkReplyTo receives partial text while the recipe is generated; may be null
+     */
+    public CompletionStage<RecipeFinder.RecipeResponse> submit(RecipeRequest request,
+                                                               ActorRef<RecipeFinder.RecipeChunk> chunkReplyTo) {
+        Submission submission = new Submission(request, chunkReplyTo);
+        // Counted before the offer, which may complete only after the element was already dequeued
+        queued.incrementAndGet();
+
+        queue.offer(submission).whenComplete((result, failure) -> {
+            if (failure == null && QueueOfferResult.enqueued().equals(result)) {
+                enqueued.increment();
+                return;
+            }
+            queued.decrementAndGet();
+            rejected.increment();
+
+            String reason;
+            if (failure != null) {
+                reason = "Recipe pipeline rejected the request: " + unwrap(failure).getMessage();
+            } else if (QueueOfferResult.dropped().equals(result)) {
+                reason = "Recipe pipeline is full, try again later";
+            } else {
+                reason = "Recipe pipeline is closed";
+            }
+            submission.result.completeExceptionally(new RejectedException(reason));
+        });
+        return submission.result;
+    }
+
+    /**
+     * Stops accepting requests; those already queued are still answered.
+     */
+    @Override
+    public void close() {
+        queue.complete();
+    }
+
+    public CompletionStage<Done> whenTerminated() {
+        return queue.watchCompletion();
+    }
+
+    private Submission dequeued(Submission submission) {
+        queued.decrementAndGet();
+        queueTime.recordSince(submission.enqueuedNanos);
+        return submission;
+    }
+
+    // A failed lookup is treated as a miss; the generation stage has its own timeout
+    private CompletionStage<Submission> lookUp(Submission submission) {
+        long start = System.nanoTime();
+        return AskPattern.<RecipeFinder.Command, RecipeFinder.RecipeResponse>ask(
+                        recipeFinder,
+                        replyTo -> new RecipeFinder.LookupRecipe(submission.request, replyTo),
+                        askTimeout,
+                        scheduler)
+                .handle((response, failure) -> {
+                    lookupTime.recordSince(start);
+                    if (failure == null && response.response != null) {
+                        submission.response = response;
+                        submission.fromCache = true;
+                    }
+                    return submission;
+                });
+    }
+
+    // Never fails the stage: a failure is carried to delivery on the submission
+    private CompletionStage<Submission> generate(Submission submission) {
+        generating.increment();
+        long start = System.nanoTime();
+        return AskPattern.<RecipeFinder.Command, RecipeFinder.RecipeResponse>ask(
+                        recipeFinder,
+                        replyTo -> new RecipeFinder.GenerateRecipe(submission.request, submission.chunkReplyTo, replyTo),
+                        askTimeout,
+                        scheduler)
+                .handle((response, failure) -> {
+                    generating.decrement();
+                    generateTime.recordSince(start);
+                    submission.response = response;
+                    submission.failure = failure == null ? null : unwrap(failure);
+                    return submission;
+                });
+    }
+
+    private void deliver(Submission submission) {
+        totalTime.recordSince(submission.enqueuedNanos);
+        if (submission.failure != null) {
+            deliveredFailed.increment();
+            submission.result.completeExceptionally(submission.failure);
+            return;
+        }
+        if (submission.fromCache) {
+            deliveredFromCache.increment();
+        } else if (isFailure(submission.response)) {
+            // RecipeFinder answers errors and timeouts with a response rather than a failure
+            deliveredFailed.increment();
+        } else {
+            deliveredGenerated.increment();
+        }
+        submission.result.complete(submission.response);
+    }
+
+    private static boolean isFailure(RecipeFinder.RecipeResponse response) {
+        return response.processingMethod != null && response.processingMethod.endsWith("(failed)");
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * One request on its way through the stages. Each stage hands it to the next, so
+     * the fields need no further synchronization.
+     */
+    private static final class Submission {
+        final RecipeRequest request;
+        final ActorRef<RecipeFinder.RecipeChunk> chunkReplyTo;
+        final CompletableFuture<RecipeFinder.RecipeResponse> result = new CompletableFuture<>();
+        final long enqueuedNanos = System.nanoTime();
+        RecipeFinder.RecipeResponse response;
+        Throwable failure;
+        boolean fromCache;
+
+        Submission(RecipeRequest request, ActorRef<RecipeFinder.RecipeChunk> chunkReplyTo) {
+            this.request = request;
+            this.chunkReplyTo = chunkReplyTo;
+        }
+    }
+}
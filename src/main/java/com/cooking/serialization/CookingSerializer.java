@@ -0,0 +1,532 @@
+package com.cooking.serialization;
+
+import akka.actor.ExtendedActorSystem;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorRefResolver;
+import akka.actor.typed.javadsl.Adapter;
+import akka.serialization.SerializerWithStringManifest;
+import akka.stream.StreamRefResolver;
+import com.cooking.actor.LLMActor;
+import com.cooking.actor.RecipeFinder;
+import com.cooking.actor.SubstitutionExpert;
+import com.cooking.metrics.RequestTiming;
+import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+
+import java.io.NotSerializableException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary serializer for every message the cooking actors exchange across nodes.
+ *
+ * <p>Layout: fields in declaration order, with no names or type tags. Numbers are zig-zag
+ * varints. Strings are a varint length (0 = null) followed by UTF-8. Common dietary
+ * preferences are a one-byte code from {@link #DIETS}. Actor refs and stream refs use
+ * Akka's serialization formats, and recipe bodies longer than
+ * cooking.serialization.compress-threshold bytes are deflated.
+ *
+ * <p>The manifests are part of the wire format. Changing a message's layout means giving it
+ * a new manifest and keeping the old one readable until every node has been upgraded; the
+ * same goes for the order of {@link #DIETS}, which may only be appended to.
+ */
+public final class CookingSerializer extends SerializerWithStringManifest {
+    // Anything above Akka's reserved 0-40 that no other serializer in the system uses
+    private static final int IDENTIFIER = 7700;
+
+    private static final String PROCESS_RECIPE_REQUEST = "PR";
+    private static final String STREAM_RECIPE_REQUEST = "SR";
+    private static final String LLM_RECIPE_RESPONSE = "RR";
+    private static final String LLM_RECIPE_CHUNK = "RC";
+    private static final String RECIPE_ERROR = "RE";
+    private static final String RECIPE_EXPIRED = "RX";
+    private static final String RECIPE_STREAM = "RS";
+    private static final String GENERATION_STARTED = "GS";
+    private static final String EXTEND_DEADLINE = "XD";
+    private static final String FIND_RECIPE = "FR";
+    private static final String FIND_RECIPE_WITH_ASK = "FA";
+    private static final String FORWARD_TO_LLM = "FL";
+    private static final String FIND_RECIPE_STREAMING = "FS";
+    private static final String LOOKUP_RECIPE = "FK";
+    private static final String GENERATE_RECIPE = "FG";
+    private static final String FINDER_RECIPE_CHUNK = "FC";
+    private static final String FINDER_RECIPE_RESPONSE = "FP";
+    private static final String FIND_SUBSTITUTIONS = "SF";
+    private static final String SUBSTITUTION_RESPONSE = "SS";
+    private static final String RECIPE_REQUEST = "Q";
+
+    // Append only: the index is what goes on the wire
+    private static final String[] DIETS = {
+            "none", "vegetarian", "vegan", "gluten-free", "keto", "dairy-free",
+            "pescatarian", "paleo", "low-carb", "nut-free", "halal", "kosher",
+    };
+    private static final int DIET_NULL = 0;
+    private static final int DIET_LITERAL = 1;
+    private static final int DIET_FIRST_CODE = 2;
+
+    private static final int TIMING_NULL = 0;
+    private static final int TIMING_NONE = 1;
+    private static final int TIMING_TRACED = 2;
+
+    private static final ThreadLocal<Deflater> DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final ExtendedActorSystem system;
+    private final int compressThreshold;
+    // Created on first use: the serializer is built while the actor system is still starting
+    private volatile ActorRefResolver resolver;
+    private volatile StreamRefResolver streamRefResolver;
+
+    public CookingSerializer(ExtendedActorSystem system) {
+        this.system = system;
+        this.compressThreshold = ConfigLoader.getSerializationCompressThreshold();
+    }
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object message) {
+        if (message instanceof LLMActor.ProcessRecipeRequest) return PROCESS_RECIPE_REQUEST;
+        if (message instanceof LLMActor.StreamRecipeRequest) return STREAM_RECIPE_REQUEST;
+        if (message instanceof LLMActor.RecipeResponse) return LLM_RECIPE_RESPONSE;
+        if (message instanceof LLMActor.RecipeChunk) return LLM_RECIPE_CHUNK;
+        if (message instanceof LLMActor.RecipeError) return RECIPE_ERROR;
+        if (message instanceof LLMActor.RecipeExpired) return RECIPE_EXPIRED;
+        if (message instanceof LLMActor.RecipeStream) return RECIPE_STREAM;
+        if (message instanceof LLMActor.GenerationStarted) return GENERATION_STARTED;
+        if (message instanceof LLMActor.ExtendDeadline) return EXTEND_DEADLINE;
+        if (message instanceof RecipeFinder.FindRecipe) return FIND_RECIPE;
+        if (message instanceof RecipeFinder.FindRecipeWithAsk) return FIND_RECIPE_WITH_ASK;
+        if (message instanceof RecipeFinder.ForwardToLLM) return FORWARD_TO_LLM;
+        if (message instanceof RecipeFinder.FindRecipeStreaming) return FIND_RECIPE_STREAMING;
+        if (message instanceof RecipeFinder.LookupRecipe) return LOOKUP_RECIPE;
+        if (message instanceof RecipeFinder.GenerateRecipe) return GENERATE_RECIPE;
+        if (message instanceof RecipeFinder.RecipeChunk) return FINDER_RECIPE_CHUNK;
+        if (message instanceof RecipeFinder.RecipeResponse) return FINDER_RECIPE_RESPONSE;
+        if (message instanceof SubstitutionExpert.FindSubstitutions) return FIND_SUBSTITUTIONS;
+        if (message instanceof SubstitutionExpert.SubstitutionResponse) return SUBSTITUTION_RESPONSE;
+        if (message instanceof RecipeRequest) return RECIPE_REQUEST;
+        throw new IllegalArgumentException("Cannot serialize " + message.getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object message) {
+        Writer out = new Writer();
+        if (message instanceof LLMActor.ProcessRecipeRequest) {
+            LLMActor.ProcessRecipeRequest m = (LLMActor.ProcessRecipeRequest) message;
+            out.writeLong(m.requestId);
+            writeRequest(out, m.request);
+            writeRef(out, m.replyTo);
+            writeTiming(out, m.timing);
+            out.writeLong(m.deadlineEpochMillis);
+        } else if (message instanceof LLMActor.StreamRecipeRequest) {
+            LLMActor.StreamRecipeRequest m = (LLMActor.StreamRecipeRequest) message;
+            out.writeLong(m.requestId);
+            writeRequest(out, m.request);
+            writeRef(out, m.replyTo);
+            writeTiming(out, m.timing);
+            out.writeLong(m.deadlineEpochMillis);
+        } else if (message instanceof LLMActor.RecipeResponse) {
+            LLMActor.RecipeResponse m = (LLMActor.RecipeResponse) message;
+            out.writeLong(m.requestId);
+            writeText(out, m.response);
+            writeTiming(out, m.timing);
+        } else if (message instanceof LLMActor.RecipeChunk) {
+            LLMActor.RecipeChunk m = (LLMActor.RecipeChunk) message;
+            out.writeLong(m.requestId);
+            out.writeString(m.text);
+        } else if (message instanceof LLMActor.RecipeError) {
+            LLMActor.RecipeError m = (LLMActor.RecipeError) message;
+            out.writeLong(m.requestId);
+            out.writeString(m.error);
+            writeTiming(out, m.timing);
+        } else if (message instanceof LLMActor.RecipeExpired) {
+            LLMActor.RecipeExpired m = (LLMActor.RecipeExpired) message;
+            out.writeLong(m.requestId);
+            writeTiming(out, m.timing);
+        } else if (message instanceof LLMActor.RecipeStream) {
+            LLMActor.RecipeStream m = (LLMActor.RecipeStream) message;
+            out.writeLong(m.requestId);
+            out.writeString(streamRefResolver().toSerializationFormat(m.chunks));
+            writeTiming(out, m.timing);
+        } else if (message instanceof LLMActor.GenerationStarted) {
+            LLMActor.GenerationStarted m = (LLMActor.GenerationStarted) message;
+            out.writeLong(m.requestId);
+            writeRef(out, m.worker);
+        } else if (message instanceof LLMActor.ExtendDeadline) {
+            LLMActor.ExtendDeadline m = (LLMActor.ExtendDeadline) message;
+            out.writeLong(m.requestId);
+            writeRef(out, m.replyTo);
+            out.writeLong(m.deadlineEpochMillis);
+        } else if (message instanceof RecipeFinder.FindRecipe) {
+            RecipeFinder.FindRecipe m = (RecipeFinder.FindRecipe) message;
+            writeRequest(out, m.request);
+            writeRef(out, m.replyTo);
+        } else if (message instanceof RecipeFinder.FindRecipeWithAsk) {
+            RecipeFinder.FindRecipeWithAsk m = (RecipeFinder.FindRecipeWithAsk) message;
+            writeRequest(out, m.request);
+            writeRef(out, m.replyTo);
+        } else if (message instanceof RecipeFinder.ForwardToLLM) {
+            RecipeFinder.ForwardToLLM m = (RecipeFinder.ForwardToLLM) message;
+            writeRequest(out, m.request);
+            writeRef(out, m.originalSender);
+        } else if (message instanceof RecipeFinder.FindRecipeStreaming) {
+            RecipeFinder.FindRecipeStreaming m = (RecipeFinder.FindRecipeStreaming) message;
+            writeRequest(out, m.request);
+            writeRef(out, m.chunkReplyTo);
+            writeRef(out, m.replyTo);
+        } else if (message instanceof RecipeFinder.LookupRecipe) {
+            RecipeFinder.LookupRecipe m = (RecipeFinder.LookupRecipe) message;
+            writeRequest(out, m.request);
+            writeRef(out, m.replyTo);
+        } else if (message instanceof RecipeFinder.GenerateRecipe) {
+            RecipeFinder.GenerateRecipe m = (RecipeFinder.GenerateRecipe) message;
+            writeRequest(out, m.request);
+            writeRef(out, m.chunkReplyTo);
+            writeRef(out, m.replyTo);
+        } else if (message instanceof RecipeFinder.RecipeChunk) {
+            out.writeString(((RecipeFinder.RecipeChunk) message).text);
+        } else if (message instanceof RecipeFinder.RecipeResponse) {
+            RecipeFinder.RecipeResponse m = (RecipeFinder.RecipeResponse) message;
+            writeText(out, m.response);
+            out.writeString(m.processingMethod);
+        } else if (message instanceof SubstitutionExpert.FindSubstitutions) {
+            SubstitutionExpert.FindSubstitutions m = (SubstitutionExpert.FindSubstitutions) message;
+            writeRequest(out, m.request);
+            writeRef(out, m.replyTo);
+        } else if (message instanceof SubstitutionExpert.SubstitutionResponse) {
+            writeText(out, ((SubstitutionExpert.SubstitutionResponse) message).response);
+        } else if (message instanceof RecipeRequest) {
+            writeRequest(out, (RecipeRequest) message);
+        } else {
+            throw new IllegalArgumentException("Cannot serialize " + message.getClass().getName());
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+        Reader in = new Reader(bytes);
+        try {
+            switch (manifest) {
+                case PROCESS_RECIPE_REQUEST:
+                    return new LLMActor.ProcessRecipeRequest(in.readLong(), readRequest(in), readRef(in),
+                            readTiming(in), in.readLong());
+                case STREAM_RECIPE_REQUEST:
+                    return new LLMActor.StreamRecipeRequest(in.readLong(), readRequest(in), readRef(in),
+                            readTiming(in), in.readLong());
+                case LLM_RECIPE_RESPONSE:
+                    return new LLMActor.RecipeResponse(in.readLong(), readText(in), readTiming(in));
+                case LLM_RECIPE_CHUNK:
+                    return new LLMActor.RecipeChunk(in.readLong(), in.readString());
+                case RECIPE_ERROR:
+                    return new LLMActor.RecipeError(in.readLong(), in.readString(), readTiming(in));
+                case RECIPE_EXPIRED:
+                    return new LLMActor.RecipeExpired(in.readLong(), readTiming(in));
+                case RECIPE_STREAM:
+                    return new LLMActor.RecipeStream(in.readLong(),
+                            streamRefResolver().resolveSourceRef(in.readString()), readTiming(in));
+                case GENERATION_STARTED:
+                    return new LLMActor.GenerationStarted(in.readLong(), readRef(in));
+                case EXTEND_DEADLINE:
+                    return new LLMActor.ExtendDeadline(in.readLong(), readRef(in), in.readLong());
+                case FIND_RECIPE:
+                    return new RecipeFinder.FindRecipe(readRequest(in), readRef(in));
+                case FIND_RECIPE_WITH_ASK:
+                    return new RecipeFinder.FindRecipeWithAsk(readRequest(in), readRef(in));
+                case FORWARD_TO_LLM:
+                    return new RecipeFinder.ForwardToLLM(readRequest(in), readRef(in));
+                case FIND_RECIPE_STREAMING:
+                    return new RecipeFinder.FindRecipeStreaming(readRequest(in), readRef(in), readRef(in));
+                case LOOKUP_RECIPE:
+                    return new RecipeFinder.LookupRecipe(readRequest(in), readRef(in));
+                case GENERATE_RECIPE:
+                    return new RecipeFinder.GenerateRecipe(readRequest(in), readRef(in), readRef(in));
+                case FINDER_RECIPE_CHUNK:
+                    return new RecipeFinder.RecipeChunk(in.readString());
+                case FINDER_RECIPE_RESPONSE:
+                    return new RecipeFinder.RecipeResponse(readText(in), in.readString());
+                case FIND_SUBSTITUTIONS:
+                    return new SubstitutionExpert.FindSubstitutions(readRequest(in), readRef(in));
+                case SUBSTITUTION_RESPONSE:
+                    return new SubstitutionExpert.SubstitutionResponse(readText(in));
+                case RECIPE_REQUEST:
+                    return readRequest(in);
+                default:
+                    throw new NotSerializableException("Unknown manifest '" + manifest + "' for " + getClass().getName());
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | DataFormatException e) {
+            throw new NotSerializableException("Corrupt '" + manifest + "' message: " + e.getMessage());
+        }
+    }
+
+    private static void writeRequest(Writer out, RecipeRequest request) {
+        out.writeByte(request.isNeedSubstitutions() ? 1 : 0);
+        out.writeString(request.getQuery());
+        String diet = request.getDietaryPreference();
+        if (diet == null) {
+            out.writeInt(DIET_NULL);
+            return;
+        }
+        for (int i = 0; i < DIETS.length; i++) {
+            if (DIETS[i].equals(diet)) {
+                out.writeInt(DIET_FIRST_CODE + i);
+                return;
+            }
+        }
+        out.writeInt(DIET_LITERAL);
+        out.writeString(diet);
+    }
+
+    private static RecipeRequest readRequest(Reader in) {
+        boolean needSubstitutions = in.readByte() != 0;
+        String query = in.readString();
+        int code = in.readInt();
+        String diet;
+        if (code == DIET_NULL) {
+            diet = null;
+        } else if (code == DIET_LITERAL) {
+            diet = in.readString();
+        } else if (code - DIET_FIRST_CODE < DIETS.length) {
+            diet = DIETS[code - DIET_FIRST_CODE];
+        } else {
+            throw new IllegalArgumentException("unknown dietary preference code " + code);
+        }
+        return new RecipeRequest(query, diet, needSubstitutions);
+    }
+
+    private static void writeTiming(Writer out, RequestTiming timing) {
+        if (timing == null) {
+            out.writeByte(TIMING_NULL);
+            return;
+        }
+        if (timing == RequestTiming.NONE) {
+            out.writeByte(TIMING_NONE);
+            return;
+        }
+        out.writeByte(TIMING_TRACED);
+        out.writeLong(timing.requestId());
+        out.writeLong(timing.dispatchedAtMicros());
+        out.writeLong(timing.repliedAtMicros());
+        long[] stages = timing.stageNanos();
+        out.writeInt(stages.length);
+        for (long nanos : stages) {
+            out.writeLong(nanos);
+        }
+    }
+
+    private static RequestTiming readTiming(Reader in) {
+        switch (in.readByte()) {
+            case TIMING_NULL:
+                return null;
+            case TIMING_NONE:
+                return RequestTiming.NONE;
+            case TIMING_TRACED:
+                long requestId = in.readLong();
+                long dispatchedAtMicros = in.readLong();
+                long repliedAtMicros = in.readLong();
+                long[] stages = new long[in.readInt()];
+                for (int i = 0; i < stages.length; i++) {
+                    stages[i] = in.readLong();
+                }
+                return RequestTiming.restore(requestId, dispatchedAtMicros, repliedAtMicros, stages);
+            default:
+                throw new IllegalArgumentException("unknown timing tag");
+        }
+    }
+
+    private void writeRef(Writer out, ActorRef<?> ref) {
+        out.writeString(ref == null ? null : resolver().toSerializationFormat(ref));
+    }
+
+    private <T> ActorRef<T> readRef(Reader in) {
+        String path = in.readString();
+        return path == null ? null : resolver().resolveActorRef(path);
+    }
+
+    private ActorRefResolver resolver() {
+        ActorRefResolver current = resolver;
+        if (current == null) {
+            current = ActorRefResolver.get(Adapter.toTyped(system));
+            resolver = current;
+        }
+        return current;
+    }
+
+    private StreamRefResolver streamRefResolver() {
+        StreamRefResolver current = streamRefResolver;
+        if (current == null) {
+            current = StreamRefResolver.get(system);
+            streamRefResolver = current;
+        }
+        return current;
+    }
+
+    // A recipe body: a varint header of (length << 1 | deflated) + 1, 0 for null. Deflated
+    // bodies also carry their original length
+    private void writeText(Writer out, String text) {
+        if (text == null) {
+            out.writeInt(0);
+            return;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (compressThreshold >= 0 && utf8.length > compressThreshold) {
+            byte[] deflated = deflate(utf8);
+            if (deflated.length < utf8.length) {
+                out.writeInt((deflated.length << 1 | 1) + 1);
+                out.writeInt(utf8.length);
+                out.writeBytes(deflated);
+                return;
+            }
+        }
+        out.writeInt((utf8.length << 1) + 1);
+        out.writeBytes(utf8);
+    }
+
+    private static String readText(Reader in) throws DataFormatException {
+        int header = in.readInt();
+        if (header == 0) {
+            return null;
+        }
+        int length = (header - 1) >>> 1;
+        if (((header - 1) & 1) == 0) {
+            return new String(in.readBytes(length), StandardCharsets.UTF_8);
+        }
+        int originalLength = in.readInt();
+        return new String(inflate(in.readBytes(length), originalLength), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        // Text worth compressing shrinks; if it does not fit in this, it is sent as is
+        byte[] buffer = new byte[bytes.length];
+        int length = deflater.deflate(buffer);
+        return deflater.finished() ? Arrays.copyOf(buffer, length) : bytes;
+    }
+
+    private static byte[] inflate(byte[] bytes, int originalLength) throws DataFormatException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(bytes);
+        byte[] text = new byte[originalLength];
+        int length = inflater.inflate(text);
+        if (length != originalLength || !inflater.finished()) {
+            throw new DataFormatException("deflated text is " + length + " bytes, expected " + originalLength);
+        }
+        return text;
+    }
+
+    /**
+     * Growable output buffer with zig-zag varints.
+     */
+    static final class Writer {
+        private byte[] buffer = new byte[64];
+        private int position = 0;
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            writeLong(value);
+        }
+
+        void writeLong(long value) {
+            ensure(10);
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[position++] = (byte) zigzag;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        // Length + 1, so that 0 can stand for null
+        void writeString(String value) {
+            if (value == null) {
+                writeInt(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(utf8.length + 1);
+            writeBytes(utf8);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+
+    /**
+     * Reads what {@link Writer} wrote; running off the end throws ArrayIndexOutOfBoundsException.
+     */
+    static final class Reader {
+        private final byte[] buffer;
+        private int position = 0;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            return buffer[position++];
+        }
+
+        int readInt() {
+            long value = readLong();
+            if (value != (int) value) {
+                throw new IllegalArgumentException("varint out of int range: " + value);
+            }
+            return (int) value;
+        }
+
+        long readLong() {
+            long zigzag = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IllegalArgumentException("varint longer than 10 bytes");
+        }
+
+        byte[] readBytes(int length) {
+            if (length < 0 || length > buffer.length - position) {
+                throw new IllegalArgumentException("length " + length + " past the end of the message");
+            }
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = readInt() - 1;
+            return length < 0 ? null : new String(readBytes(length), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.cooking.sim;
+
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Service-time distribution of a simulated backend, read from a config block such as
+ * <pre>{ distribution = lognormal, median = 2s, p99 = 12s }</pre>
+ * Supported distributions:
+ * <ul>
+ *   <li>{@code constant}: {@code value}</li>
+ *   <li>{@code uniform}: {@code min}, {@code max}</li>
+ *   <li>{@code exponential}: {@code mean}</li>
+ *   <li>{@code lognormal}: {@code median}, {@code p99}, the usual shape of LLM latency with its long tail</li>
+ * </ul>
+ */
+public abstract class LatencyModel {
+    // z-score of the 99th percentile of a standard normal distribution
+    private static final double Z_99 = 2.3263478740;
+
+    /**
+     * Draws one service time in nanoseconds.
+     */
+    public abstract long sampleNanos(Random random);
+
+    public static LatencyModel fromConfig(Config config) {
+        String distribution = config.getString("distribution").toLowerCase(Locale.ROOT);
+        switch (distribution) {
+            case "constant":
+                return constant(config.getDuration("value"));
+            case "uniform":
+                return uniform(config.getDuration("min"), config.getDuration("max"));
+            case "exponential":
+                return exponential(config.getDuration("mean"));
+            case "lognormal":
+                return lognormal(config.getDuration("median"), config.getDuration("p99"));
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + distribution);
+        }
+    }
+
+    public static LatencyModel constant(Duration value) {
+        long nanos = value.toNanos();
+        return new LatencyModel() {
+            @Override
+            public long sampleNanos(Random random) {
+                return nanos;
+            }
+
+            @Override
+            public String toString() {
+                return "constant(" + value + ")";
+            }
+        };
+    }
+
+    public static LatencyModel uniform(Duration min, Duration max) {
+        long minNanos = min.toNanos();
+        long spanNanos = max.toNanos() - minNanos;
+        if (spanNanos < 0) {
+            throw new IllegalArgumentException("Uniform latency needs min <= max");
+        }
+        return new LatencyModel() {
+            @Override
+            public long sampleNanos(Random random) {
+                return minNanos + (long) (random.nextDouble() * spanNanos);
+            }
+
+            @Override
+            public String toString() {
+                return "uniform(" + min + ".." + max + ")";
+            }
+        };
+    }
+
+    public static LatencyModel exponential(Duration mean) {
+        double meanNanos = mean.toNanos();
+        return new LatencyModel() {
+            @Override
+            public long sampleNanos(Random random) {
+                return (long) (-meanNanos * Math.log(1.0 - random.nextDouble()));
+            }
+
+            @Override
+            public String toString() {
+                return "exponential(mean " + mean + ")";
+            }
+        };
+    }
+
+    public static LatencyModel lognormal(Duration median, Duration p99) {
+        if (p99.compareTo(median) < 0) {
+            throw new IllegalArgumentException("Lognormal latency needs median <= p99");
+        }
+        double mu = Math.log(median.toNanos());
+        double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+        return new LatencyModel() {
+            @Override
+            public long sampleNanos(Random random) {
+                return (long) Math.exp(mu + sigma * random.nextGaussian());
+            }
+
+            @Override
+            public String toString() {
+                return "lognormal(median " + median + ", p99 " + p99 + ")";
+            }
+        };
+    }
+}
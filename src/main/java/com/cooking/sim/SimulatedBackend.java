@@ -0,0 +1,217 @@
+package com.cooking.sim;
+
+import com.cooking.api.MockOpenAIClient;
+import com.cooking.metrics.RequestTiming;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * {@link MockOpenAIClient} whose latency runs on the simulation's virtual clock instead
+ * of sleeping. The backend is an M/G/c queue: {@code concurrency} generations run at
+ * once, each for a service time drawn from its {@link LatencyModel}, and later requests
+ * wait in FIFO order for a free slot. Past {@code queue-capacity} waiting requests, or
+ * with probability {@code error-rate}, a generation fails right away.
+ *
+ * <p>Generations only complete when the simulation driver calls {@link #completeDue(long)},
+ * which it does in lockstep with the virtual clock.
+ */
+public class SimulatedBackend extends MockOpenAIClient {
+    private final String name;
+    private final LatencyModel latency;
+    private final int queueCapacity;
+    private final double errorRate;
+    private final VirtualClock clock;
+    private final Random random;
+
+    // When each generation slot becomes free, in virtual nanos
+    private final long[] slotFreeAt;
+    private final PriorityQueue<Completion> completions = new PriorityQueue<>();
+    // Start times of accepted requests that were queued behind busy slots
+    private final PriorityQueue<Long> queuedStarts = new PriorityQueue<>();
+    private long sequence = 0L;
+
+    private long served = 0L;
+    private long rejected = 0L;
+    private long failed = 0L;
+    private long busyNanos = 0L;
+    private long queueWaitNanos = 0L;
+    private long maxQueueWaitNanos = 0L;
+
+    private static final class Completion implements Comparable<Completion> {
+        final long atNanos;
+        final long sequence;
+        final CompletableFuture<String> result;
+        final String recipe;
+
+        Completion(long atNanos, long sequence, CompletableFuture<String> result, String recipe) {
+            this.atNanos = atNanos;
+            this.sequence = sequence;
+            this.result = result;
+            this.recipe = recipe;
+        }
+
+        @Override
+        public int compareTo(Completion other) {
+            int byTime = Long.compare(atNanos, other.atNanos);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public SimulatedBackend(String name, LatencyModel latency, int concurrency, int queueCapacity,
+                            double errorRate, VirtualClock clock, long seed) {
+        super("unused", "simulated-" + name, 0.0);
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Backend " + name + " needs a concurrency of at least 1");
+        }
+        this.name = name;
+        this.latency = latency;
+        this.queueCapacity = queueCapacity;
+        this.errorRate = errorRate;
+        this.clock = clock;
+        this.random = new Random(seed);
+        this.slotFreeAt = new long[concurrency];
+    }
+
+    /**
+     * Backend from a cooking.simulation.backends entry.
+     */
+    public static SimulatedBackend fromConfig(String name, Config config, VirtualClock clock, long seed) {
+        return new SimulatedBackend(name,
+                LatencyModel.fromConfig(config.getConfig("latency")),
+                config.getInt("concurrency"),
+                config.getInt("queue-capacity"),
+                config.getDouble("error-rate"),
+                clock, seed);
+    }
+
+    @Override
+    public String getBackendName() {
+        return name;
+    }
+
+    @Override
+    public String generateRecipe(String prompt) throws IOException {
+        throw new IOException("SimulatedBackend only runs on the virtual clock; use generateRecipeAsync");
+    }
+
+    @Override
+    public synchronized CompletionStage<String> generateRecipeAsync(String prompt, RequestTiming timing) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long now = clock.nanos();
+
+        // Earliest free slot; everything before us in FIFO order already claimed theirs
+        int slot = 0;
+        for (int i = 1; i < slotFreeAt.length; i++) {
+            if (slotFreeAt[i] < slotFreeAt[slot]) {
+                slot = i;
+            }
+        }
+        long start = Math.max(now, slotFreeAt[slot]);
+
+        if (start > now && waiting(now) >= queueCapacity) {
+            rejected++;
+            result.completeExceptionally(new IOException("Simulated backend " + name + " is overloaded"));
+            return result;
+        }
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            failed++;
+            result.completeExceptionally(new IOException("Simulated backend " + name + " failed"));
+            return result;
+        }
+
+        long service = latency.sampleNanos(random);
+        slotFreeAt[slot] = start + service;
+        if (start > now) {
+            queuedStarts.add(start);
+        }
+        completions.add(new Completion(start + service, sequence++, result, renderRecipe(prompt)));
+
+        served++;
+        busyNanos += service;
+        queueWaitNanos += start - now;
+        maxQueueWaitNanos = Math.max(maxQueueWaitNanos, start - now);
+        return result;
+    }
+
+    @Override
+    public CompletionStage<String> generateRecipeStreaming(String prompt, Consumer<String> onToken,
+                                                           RequestTiming timing) {
+        // One chunk with the whole recipe: token pacing is not part of the model
+        return generateRecipeAsync(prompt, timing).thenApply(recipe -> {
+            onToken.accept(recipe);
+            return recipe;
+        });
+    }
+
+    /**
+     * Virtual time of the next generation to complete, or {@link Long#MAX_VALUE} if none is running.
+     */
+    public synchronized long nextCompletionNanos() {
+        Completion next = completions.peek();
+        return next != null ? next.atNanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * Completes every generation due at or before {@code nowNanos}, in completion order.
+     */
+    public void completeDue(long nowNanos) {
+        while (true) {
+            Completion due;
+            synchronized (this) {
+                Completion next = completions.peek();
+                if (next == null || next.atNanos > nowNanos) {
+                    return;
+                }
+                due = completions.poll();
+            }
+            due.result.complete(due.recipe);
+        }
+    }
+
+    // Accepted requests still waiting for a slot at virtual time now
+    private int waiting(long now) {
+        while (!queuedStarts.isEmpty() && queuedStarts.peek() <= now) {
+            queuedStarts.poll();
+        }
+        return queuedStarts.size();
+    }
+
+    public String describe() {
+        return name + ": " + latency + ", " + slotFreeAt.length + " slots, queue " + queueCapacity
+                + (errorRate > 0 ? ", error rate " + errorRate : "");
+    }
+
+    public synchronized long servedCount() {
+        return served;
+    }
+
+    public synchronized long rejectedCount() {
+        return rejected;
+    }
+
+    public synchronized long failedCount() {
+        return failed;
+    }
+
+    public synchronized long busyNanos() {
+        return busyNanos;
+    }
+
+    public synchronized int concurrency() {
+        return slotFreeAt.length;
+    }
+
+    public synchronized double meanQueueWaitMillis() {
+        return served == 0 ? 0.0 : queueWaitNanos / 1e6 / served;
+    }
+
+    public synchronized double maxQueueWaitMillis() {
+        return maxQueueWaitNanos / 1e6;
+    }
+}
@@ -0,0 +1,333 @@
+package com.cooking.sim;
+
+import akka.actor.testkit.typed.javadsl.ManualTime;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.receptionist.Receptionist;
+import ch.qos.logback.classic.Level;
+import com.cooking.actor.LLMActor;
+import com.cooking.actor.LoggingActor;
+import com.cooking.actor.RecipeFinder;
+import com.cooking.model.RecipeRequest;
+import com.cooking.util.ConfigLoader;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.HdrHistogram.Histogram;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays synthetic traffic through the real RecipeFinder, cache, LLMActor pools and
+ * router on a virtual clock, so hours of traffic take seconds.
+ *
+ * <p>The actor system runs with Akka's {@link ManualTime} scheduler and a single-threaded
+ * {@link SimulationExecutor}. The driver injects Poisson arrivals over a Zipf-distributed
+ * query population, advances both the Akka scheduler and the {@link VirtualClock} of the
+ * {@link SimulatedBackend}s to the next event, and waits for the actors to go idle before
+ * moving on. Latency is measured in virtual time with {@code resolution} granularity.
+ *
+ * <p>Code that reads {@code System.nanoTime()} directly (cache TTL, ask deadlines, the
+ * Prometheus timers) still sees wall-clock time, so the simulation sends tell-pattern
+ * requests and its report only uses virtual-time measurements.
+ */
+public class Simulation {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(24);
+
+    private final long requests;
+    private final double rps;
+    private final long resolutionNanos;
+    private final long maxStepNanos;
+    private final Random random;
+    private final ZipfQueries queries;
+    private final VirtualClock clock = new VirtualClock();
+    private final List<SimulatedBackend> backends = new ArrayList<>();
+    private final Stats stats = new Stats();
+
+    /**
+     * Injects one request at the current virtual time.
+     */
+    private static final class Send {
+        final RecipeRequest request;
+        final long sentAtNanos;
+
+        Send(RecipeRequest request, long sentAtNanos) {
+            this.request = request;
+            this.sentAtNanos = sentAtNanos;
+        }
+    }
+
+    public Simulation(long requests, double rps, Duration resolution, Duration maxStep,
+                      int distinctQueries, double zipfExponent, Config backendsConfig, long seed) {
+        if (requests < 1 || rps <= 0) {
+            throw new IllegalArgumentException("A simulation needs at least one request and a positive rate");
+        }
+        this.requests = requests;
+        this.rps = rps;
+        this.resolutionNanos = Math.max(1L, resolution.toNanos());
+        this.maxStepNanos = Math.max(resolutionNanos, maxStep.toNanos());
+        this.random = new Random(seed);
+        this.queries = new ZipfQueries(distinctQueries, zipfExponent);
+
+        for (String name : backendsConfig.root().keySet()) {
+            backends.add(SimulatedBackend.fromConfig(name, backendsConfig.getConfig(name), clock,
+                    seed + backends.size() + 1));
+        }
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("No simulated backends configured under cooking.simulation.backends");
+        }
+    }
+
+    /**
+     * Entry point for {@code java Main simulate [requests] [rps]}; everything else comes
+     * from cooking.simulation.
+     */
+    public static void run(String[] args) {
+        long requests = args.length > 1 ? Long.parseLong(args[1]) : ConfigLoader.getSimulationRequests();
+        double rps = args.length > 2 ? Double.parseDouble(args[2]) : ConfigLoader.getSimulationRps();
+
+        Simulation simulation = new Simulation(requests, rps,
+                ConfigLoader.getSimulationResolution(),
+                ConfigLoader.getSimulationMaxStep(),
+                ConfigLoader.getSimulationDistinctQueries(),
+                ConfigLoader.getSimulationZipfExponent(),
+                ConfigLoader.getSimulationBackends(),
+                ConfigLoader.getSimulationSeed());
+        try {
+            simulation.execute();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("❌ Simulation interrupted");
+        }
+    }
+
+    public void execute() throws InterruptedException {
+        // Per-request logging would dominate the run time
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.cooking")).setLevel(Level.OFF);
+
+        System.out.println("🧮 Simulating " + requests + " requests at " + rps + " req/s over "
+                + queries.size() + " distinct queries");
+        for (SimulatedBackend backend : backends) {
+            System.out.println("   " + backend.describe());
+        }
+
+        Config config = ConfigFactory.parseString(
+                "akka.actor.provider = local\n" +
+                        "akka.actor.default-dispatcher.executor = \"" + SimulationExecutor.class.getName() + "\"\n" +
+                        "akka.actor.internal-dispatcher = akka.actor.default-dispatcher\n" +
+                        "akka.log-dead-letters = off\n" +
+                        "akka.loglevel = WARNING")
+                .withFallback(ManualTime.config())
+                .withFallback(ConfigFactory.load());
+
+        ActorSystem<Send> system = ActorSystem.create(guardian(), "simulation", config);
+        ManualTime manualTime = ManualTime.get(system);
+        long wallStart = System.nanoTime();
+
+        try {
+            SimulationExecutor.awaitQuiescence();
+            drive(system, manualTime);
+        } finally {
+            system.terminate();
+        }
+
+        report(System.nanoTime() - wallStart);
+    }
+
+    private Behavior<Send> guardian() {
+        return Behaviors.setup(context -> {
+            for (SimulatedBackend backend : backends) {
+                ActorRef<LLMActor.Command> pool = context.spawn(LLMActor.createPool(backend, clock::nanos),
+                        "llm-" + backend.getBackendName());
+                context.getSystem().receptionist().tell(Receptionist.register(LLMActor.SERVICE_KEY, pool));
+            }
+            context.spawn(LLMActor.overflowResponder(), "llmOverflowResponder");
+            ActorRef<LLMActor.Command> llmWorkers = context.spawn(LLMActor.clusterWorkers(), "llmWorkers");
+            ActorRef<LoggingActor.Command> logging = context.spawn(LoggingActor.create(), "loggingActor");
+            ActorRef<RecipeFinder.Command> recipeFinder = context.spawn(
+                    RecipeFinder.create(llmWorkers, logging), "recipeFinder");
+
+            return Behaviors.receive(Send.class)
+                    .onMessage(Send.class, send -> {
+                        ActorRef<RecipeFinder.RecipeResponse> probe = context.spawnAnonymous(replyProbe(send.sentAtNanos));
+                        recipeFinder.tell(new RecipeFinder.FindRecipe(send.request, probe));
+                        return Behaviors.same();
+                    })
+                    .build();
+        });
+    }
+
+    // Receives the one reply of a request and records its virtual latency
+    private Behavior<RecipeFinder.RecipeResponse> replyProbe(long sentAtNanos) {
+        return Behaviors.receive(RecipeFinder.RecipeResponse.class)
+                .onMessage(RecipeFinder.RecipeResponse.class, response -> {
+                    stats.record(clock.nanos() - sentAtNanos, response.processingMethod);
+                    return Behaviors.stopped();
+                })
+                .build();
+    }
+
+    private void drive(ActorSystem<Send> system, ManualTime manualTime) throws InterruptedException {
+        long now = 0L;
+        long akkaMillis = 0L;
+        long sent = 0L;
+        long nextArrival = interArrivalNanos();
+
+        while (true) {
+            long nextCompletion = Long.MAX_VALUE;
+            for (SimulatedBackend backend : backends) {
+                nextCompletion = Math.min(nextCompletion, backend.nextCompletionNanos());
+            }
+            boolean arrivalsLeft = sent < requests;
+
+            // Nothing left to happen: every reply is in, or the rest were dropped on the way
+            if (!arrivalsLeft && nextCompletion == Long.MAX_VALUE) {
+                stats.lost = sent - stats.replies();
+                break;
+            }
+
+            long next = Math.min(arrivalsLeft ? nextArrival : Long.MAX_VALUE, nextCompletion);
+            // Round up to the resolution so events in the same tick are handled together,
+            // and never jump further than max-step so Akka timers fire close to on time
+            long target = Math.min(ceil(next), now + maxStepNanos);
+            now = Math.max(now + resolutionNanos, target);
+            clock.advanceTo(now);
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(now);
+            if (millis > akkaMillis) {
+                manualTime.timePasses(Duration.ofMillis(millis - akkaMillis));
+                akkaMillis = millis;
+            }
+
+            for (SimulatedBackend backend : backends) {
+                backend.completeDue(now);
+            }
+            while (sent < requests && nextArrival <= now) {
+                system.tell(new Send(queries.next(random), now));
+                sent++;
+                nextArrival += interArrivalNanos();
+            }
+
+            SimulationExecutor.awaitQuiescence();
+        }
+        stats.virtualNanos = now;
+    }
+
+    private long ceil(long nanos) {
+        if (nanos == Long.MAX_VALUE) {
+            return nanos;
+        }
+        return (nanos + resolutionNanos - 1) / resolutionNanos * resolutionNanos;
+    }
+
+    // Poisson arrivals: exponentially distributed gaps with mean 1 / rps
+    private long interArrivalNanos() {
+        return Math.max(1L, (long) (-Math.log(1.0 - random.nextDouble()) / rps * 1e9));
+    }
+
+    private void report(long wallNanos) {
+        double virtualSeconds = stats.virtualNanos / 1e9;
+        double wallSeconds = wallNanos / 1e9;
+        Histogram latency = stats.latency;
+
+        System.out.println();
+        System.out.println("📊 SIMULATION REPORT");
+        System.out.println("====================");
+        System.out.printf(Locale.ROOT, "Virtual time:   %.1fs (%.1fs wall clock, %.0fx)%n",
+                virtualSeconds, wallSeconds, wallSeconds > 0 ? virtualSeconds / wallSeconds : 0.0);
+        System.out.printf(Locale.ROOT, "Replies:        %d (%d from cache, %d failed, %d lost)%n",
+                stats.replies(), stats.cached, stats.failed, stats.lost);
+        System.out.printf(Locale.ROOT, "Throughput:     %.2f replies/s%n",
+                virtualSeconds > 0 ? stats.replies() / virtualSeconds : 0.0);
+        if (latency.getTotalCount() > 0) {
+            System.out.printf(Locale.ROOT, "Latency (ms):   p50 %.0f  p90 %.0f  p99 %.0f  p99.9 %.0f  max %.0f%n",
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(90) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0,
+                    latency.getMaxValue() / 1000.0);
+        }
+
+        for (SimulatedBackend backend : backends) {
+            double utilization = stats.virtualNanos == 0 ? 0.0
+                    : backend.busyNanos() / ((double) stats.virtualNanos * backend.concurrency());
+            System.out.printf(Locale.ROOT,
+                    "Backend %-8s served %d, rejected %d, failed %d, utilization %.0f%%, queue wait mean %.0fms max %.0fms%n",
+                    backend.getBackendName(), backend.servedCount(), backend.rejectedCount(), backend.failedCount(),
+                    Math.min(100.0, utilization * 100), backend.meanQueueWaitMillis(), backend.maxQueueWaitMillis());
+        }
+    }
+
+    /**
+     * Reply statistics. Written by reply probes on the simulation dispatcher and read by
+     * the driver once the system is quiescent.
+     */
+    private static final class Stats {
+        final Histogram latency = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long cached = 0L;
+        long failed = 0L;
+        long lost = 0L;
+        long virtualNanos = 0L;
+
+        synchronized void record(long latencyNanos, String processingMethod) {
+            latency.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+            if (processingMethod.contains("(failed)")) {
+                failed++;
+            } else if (processingMethod.contains("(cached)") || processingMethod.contains("(stored)")) {
+                cached++;
+            }
+        }
+
+        synchronized long replies() {
+            return latency.getTotalCount();
+        }
+    }
+
+    /**
+     * Query population where the k-th most popular query is asked with probability
+     * proportional to 1 / k^exponent, the usual shape of cacheable request streams.
+     */
+    private static final class ZipfQueries {
+        private static final String[] DIETS = {"none", "vegetarian", "vegan", "gluten-free"};
+
+        private final RecipeRequest[] requests;
+        private final double[] cumulative;
+
+        ZipfQueries(int distinct, double exponent) {
+            if (distinct < 1) {
+                throw new IllegalArgumentException("distinct-queries must be at least 1");
+            }
+            requests = new RecipeRequest[distinct];
+            cumulative = new double[distinct];
+            double total = 0.0;
+            for (int k = 0; k < distinct; k++) {
+                requests[k] = new RecipeRequest("recipe " + k, DIETS[k % DIETS.length], k % 5 == 0);
+                total += 1.0 / Math.pow(k + 1, exponent);
+                cumulative[k] = total;
+            }
+            for (int k = 0; k < distinct; k++) {
+                cumulative[k] /= total;
+            }
+        }
+
+        int size() {
+            return requests.length;
+        }
+
+        RecipeRequest next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return requests[Math.min(index, requests.length - 1)];
+        }
+    }
+}
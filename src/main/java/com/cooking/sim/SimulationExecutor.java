@@ -0,0 +1,115 @@
+package com.cooking.sim;
+
+import akka.dispatch.DispatcherPrerequisites;
+import akka.dispatch.ExecutorServiceConfigurator;
+import akka.dispatch.ExecutorServiceFactory;
+import com.typesafe.config.Config;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatcher executor for simulations: a single thread, so a seeded run is reproducible,
+ * that counts the tasks it has been handed but not yet finished. A mailbox with messages
+ * always has a task queued or running, so a count of zero means every actor on the
+ * dispatcher is idle and the driver may move the virtual clock on.
+ *
+ * <p>Selected with {@code executor = "com.cooking.sim.SimulationExecutor"}; the count is
+ * process-wide, so only one simulation can run per JVM.
+ */
+public class SimulationExecutor extends ExecutorServiceConfigurator {
+    private static final AtomicLong pending = new AtomicLong();
+    private static final Object idle = new Object();
+
+    public SimulationExecutor(Config config, DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(String id, ThreadFactory threadFactory) {
+        return new ExecutorServiceFactory() {
+            @Override
+            public ExecutorService createExecutorService() {
+                return new CountingExecutor(threadFactory);
+            }
+        };
+    }
+
+    /**
+     * Blocks until no task is queued or running.
+     */
+    public static void awaitQuiescence() throws InterruptedException {
+        synchronized (idle) {
+            while (pending.get() != 0) {
+                // Timed wait: a task may finish between the check and the wait
+                idle.wait(1);
+            }
+        }
+    }
+
+    private static void finished() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+
+    private static final class CountingExecutor extends AbstractExecutorService {
+        private final ThreadPoolExecutor delegate;
+
+        CountingExecutor(ThreadFactory threadFactory) {
+            this.delegate = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            pending.incrementAndGet();
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        finished();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                finished();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
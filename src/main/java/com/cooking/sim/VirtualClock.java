@@ -0,0 +1,20 @@
+package com.cooking.sim;
+
+/**
+ * Simulated time in nanoseconds since the start of the run. Only the simulation driver
+ * moves it forward; simulated backends and reply probes read it.
+ */
+public final class VirtualClock {
+    private volatile long nanos = 0L;
+
+    public long nanos() {
+        return nanos;
+    }
+
+    void advanceTo(long newNanos) {
+        if (newNanos < nanos) {
+            throw new IllegalArgumentException("Virtual time cannot go backwards: " + newNanos + " < " + nanos);
+        }
+        nanos = newNanos;
+    }
+}
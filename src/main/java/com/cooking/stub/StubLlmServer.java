@@ -0,0 +1,456 @@
+package com.cooking.stub;
+
+import com.cooking.util.ConfigLoader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for an LLM server, for load tests and benchmarks without a model or network.
+ *
+ * <p>Speaks the two wire protocols the clients use:
+ * <ul>
+ *   <li>Ollama {@code POST /api/chat}: NDJSON stream of message chunks (the default), or a
+ *       single JSON object with {@code "stream": false}</li>
+ *   <li>Ollama {@code GET /api/tags}, listing the models cooking.ollama is configured for, and
+ *       {@code POST /api/generate} without a prompt, which "loads" a model at once</li>
+ *   <li>OpenAI {@code POST /v1/chat/completions}: a chat completion, or server-sent events
+ *       ending in {@code data: [DONE]} with {@code "stream": true}</li>
+ * </ul>
+ *
+ * <p>Every request waits for one of {@code max-concurrent} generation slots, like a model
+ * server with a fixed number of parallel sequences; past {@code max-queue} waiting requests
+ * it answers 503 as Ollama does. Holding a slot, it waits the prefill delay (plus a per
+ * prompt token share) and then emits {@code response-tokens} tokens {@code token-latency}
+ * apart. {@code error-rate} of the requests fail with a 500 instead.
+ */
+public class StubLlmServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(StubLlmServer.class);
+
+    private static final String[] WORDS = (
+            "Ingredients: 2 cups flour, 1 cup milk, 2 eggs, 1 tbsp sugar, a pinch of salt, 2 tbsp butter. " +
+            "Instructions: 1. Whisk the flour, sugar and salt in a large bowl. 2. Beat in the eggs and milk " +
+            "until smooth. 3. Melt the butter in a pan over medium heat. 4. Pour in the batter and cook until " +
+            "golden on both sides. 5. Serve warm. Preparation time: 10 minutes. Cooking time: 20 minutes. " +
+            "Serves 4. Tip: rest the batter for 15 minutes for a lighter texture.").split(" ");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Settings settings;
+    private final Semaphore slots;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Latency and capacity model of the stub.
+     */
+    public static final class Settings {
+        final Duration prefillDelay;
+        final Duration prefillTokenLatency;
+        final Duration tokenLatency;
+        final int responseTokens;
+        final double errorRate;
+        final int maxConcurrent;
+        final int maxQueue;
+
+        public Settings(Duration prefillDelay, Duration prefillTokenLatency, Duration tokenLatency,
+                        int responseTokens, double errorRate, int maxConcurrent, int maxQueue) {
+            if (maxConcurrent < 1 || responseTokens < 1) {
+                throw new IllegalArgumentException("max-concurrent and response-tokens must be at least 1");
+            }
+            this.prefillDelay = prefillDelay;
+            this.prefillTokenLatency = prefillTokenLatency;
+            this.tokenLatency = tokenLatency;
+            this.responseTokens = responseTokens;
+            this.errorRate = errorRate;
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+        }
+
+        /**
+         * Settings from cooking.stub-server.
+         */
+        public static Settings fromConfig() {
+            return new Settings(
+                    ConfigLoader.getStubServerPrefillDelay(),
+                    ConfigLoader.getStubServerPrefillTokenLatency(),
+                    ConfigLoader.getStubServerTokenLatency(),
+                    ConfigLoader.getStubServerResponseTokens(),
+                    ConfigLoader.getStubServerErrorRate(),
+                    ConfigLoader.getStubServerMaxConcurrent(),
+                    ConfigLoader.getStubServerMaxQueue());
+        }
+
+        /**
+         * No latency, no errors and no queueing limit: measures the client stack alone.
+         */
+        public static Settings zeroLatency(int responseTokens) {
+            return new Settings(Duration.ZERO, Duration.ZERO, Duration.ZERO, responseTokens, 0.0,
+                    Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+    }
+
+    private StubLlmServer(HttpServer server, ExecutorService executor, Settings settings) {
+        this.server = server;
+        this.executor = executor;
+        this.settings = settings;
+        this.slots = new Semaphore(settings.maxConcurrent, true);
+    }
+
+    /**
+     * Starts the server; port 0 picks a free port (see {@link #baseUrl()}).
+     */
+    public static StubLlmServer start(String host, int port, Settings settings) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        // Handlers sleep through the simulated generation, so each request gets its own thread
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-llm-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        StubLlmServer stub = new StubLlmServer(httpServer, executor, settings);
+        httpServer.createContext("/api/chat", stub::handleOllamaChat);
+        httpServer.createContext("/api/tags", stub::handleOllamaTags);
+        httpServer.createContext("/api/generate", stub::handleOllamaLoad);
+        httpServer.createContext("/v1/chat/completions", stub::handleOpenAIChat);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+
+        log.info("🧪 Stub LLM server listening at {} (prefill {}ms, {}ms/token, {} tokens, {} slots)",
+                stub.baseUrl(), settings.prefillDelay.toMillis(), settings.tokenLatency.toMillis(),
+                settings.responseTokens, settings.maxConcurrent);
+        return stub;
+    }
+
+    /**
+     * Starts the server on cooking.stub-server.host and port with settings from config.
+     */
+    public static StubLlmServer startFromConfig() throws IOException {
+        return start(ConfigLoader.getStubServerHost(), ConfigLoader.getStubServerPort(), Settings.fromConfig());
+    }
+
+    /**
+     * Base URL to point a client at, e.g. {@code new OllamaClient(stub.baseUrl(), model)}.
+     */
+    public String baseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleOllamaChat(HttpExchange exchange) throws IOException {
+        handle(exchange, true);
+    }
+
+    // Whatever models the node will ask for, so its startup health check passes
+    private void handleOllamaTags(HttpExchange exchange) throws IOException {
+        try {
+            JSONArray models = new JSONArray();
+            for (String name : new LinkedHashSet<>(List.of(ConfigLoader.getOllamaModel(),
+                    ConfigLoader.getOllamaTierModel("small"), ConfigLoader.getOllamaTierModel("large")))) {
+                models.put(new JSONObject().put("name", name).put("model", name));
+            }
+            sendJson(exchange, new JSONObject().put("models", models));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Only the load-and-keep-alive form (no prompt) that the warm-up sends
+    private void handleOllamaLoad(HttpExchange exchange) throws IOException {
+        try {
+            JSONObject request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                sendError(exchange, 400, "invalid request body: " + e.getMessage());
+                return;
+            }
+            if (!request.optString("prompt").isEmpty()) {
+                sendError(exchange, 501, "the stub only generates through /api/chat");
+                return;
+            }
+            sendJson(exchange, new JSONObject()
+                    .put("model", request.optString("model", "stub"))
+                    .put("created_at", Instant.now().toString())
+                    .put("response", "")
+                    .put("done", true)
+                    .put("done_reason", "load"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleOpenAIChat(HttpExchange exchange) throws IOException {
+        handle(exchange, false);
+    }
+
+    private void handle(HttpExchange exchange, boolean ollama) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            requests.incrementAndGet();
+
+            JSONObject request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                sendError(exchange, 400, "invalid request body: " + e.getMessage());
+                return;
+            }
+
+            // Ollama streams unless told not to; OpenAI only when asked
+            boolean stream = ollama ? request.optBoolean("stream", true) : request.optBoolean("stream", false);
+            String model = request.optString("model", "stub");
+            String prompt = lastUserMessage(request);
+
+            if (waiting.incrementAndGet() > settings.maxQueue) {
+                waiting.decrementAndGet();
+                rejected.incrementAndGet();
+                sendError(exchange, 503, "server busy, please try again. maximum pending requests exceeded");
+                return;
+            }
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                waiting.decrementAndGet();
+            }
+
+            try {
+                if (settings.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < settings.errorRate) {
+                    failed.incrementAndGet();
+                    sendError(exchange, 500, "simulated model failure");
+                    return;
+                }
+
+                long promptTokens = Math.max(1, prompt.length() / 4);
+                pause(settings.prefillDelay.toNanos() + promptTokens * settings.prefillTokenLatency.toNanos());
+
+                List<String> tokens = tokens(prompt);
+                if (ollama) {
+                    respondOllama(exchange, model, tokens, promptTokens, stream);
+                } else {
+                    respondOpenAI(exchange, model, tokens, promptTokens, stream);
+                }
+            } finally {
+                slots.release();
+            }
+        } catch (IOException e) {
+            // The client went away mid-response; nothing left to answer
+            log.debug("Stub response aborted: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respondOllama(HttpExchange exchange, String model, List<String> tokens,
+                               long promptTokens, boolean stream) throws IOException {
+        long start = System.nanoTime();
+        if (!stream) {
+            StringBuilder content = new StringBuilder();
+            for (String token : tokens) {
+                pause(settings.tokenLatency.toNanos());
+                content.append(token);
+            }
+            JSONObject body = ollamaChunk(model, content.toString(), true);
+            ollamaStats(body, promptTokens, tokens.size(), System.nanoTime() - start);
+            sendJson(exchange, body);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (String token : tokens) {
+                pause(settings.tokenLatency.toNanos());
+                writeLine(out, ollamaChunk(model, token, false).toString() + "\n");
+            }
+            JSONObject done = ollamaChunk(model, "", true);
+            ollamaStats(done, promptTokens, tokens.size(), System.nanoTime() - start);
+            writeLine(out, done.toString() + "\n");
+        }
+    }
+
+    private void respondOpenAI(HttpExchange exchange, String model, List<String> tokens,
+                               long promptTokens, boolean stream) throws IOException {
+        String id = "chatcmpl-stub-" + requests.get();
+        long created = Instant.now().getEpochSecond();
+
+        if (!stream) {
+            StringBuilder content = new StringBuilder();
+            for (String token : tokens) {
+                pause(settings.tokenLatency.toNanos());
+                content.append(token);
+            }
+            JSONObject message = new JSONObject().put("role", "assistant").put("content", content.toString());
+            JSONObject choice = new JSONObject().put("index", 0).put("message", message).put("finish_reason", "stop");
+            JSONObject usage = new JSONObject()
+                    .put("prompt_tokens", promptTokens)
+                    .put("completion_tokens", tokens.size())
+                    .put("total_tokens", promptTokens + tokens.size());
+            sendJson(exchange, new JSONObject()
+                    .put("id", id)
+                    .put("object", "chat.completion")
+                    .put("created", created)
+                    .put("model", model)
+                    .put("choices", new JSONArray().put(choice))
+                    .put("usage", usage));
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (String token : tokens) {
+                pause(settings.tokenLatency.toNanos());
+                writeLine(out, "data: " + openAIChunk(id, created, model, token, null) + "\n\n");
+            }
+            writeLine(out, "data: " + openAIChunk(id, created, model, null, "stop") + "\n\n");
+            writeLine(out, "data: [DONE]\n\n");
+        }
+    }
+
+    private static JSONObject ollamaChunk(String model, String content, boolean done) {
+        JSONObject body = new JSONObject()
+                .put("model", model)
+                .put("created_at", Instant.now().toString())
+                .put("message", new JSONObject().put("role", "assistant").put("content", content))
+                .put("done", done);
+        if (done) {
+            body.put("done_reason", "stop");
+        }
+        return body;
+    }
+
+    private void ollamaStats(JSONObject body, long promptTokens, int evalTokens, long evalNanos) {
+        long prefillNanos = settings.prefillDelay.toNanos() + promptTokens * settings.prefillTokenLatency.toNanos();
+        body.put("total_duration", prefillNanos + evalNanos)
+                .put("load_duration", 0)
+                .put("prompt_eval_count", promptTokens)
+                .put("prompt_eval_duration", prefillNanos)
+                .put("eval_count", evalTokens)
+                .put("eval_duration", evalNanos);
+    }
+
+    private static String openAIChunk(String id, long created, String model, String content, String finishReason) {
+        JSONObject delta = new JSONObject();
+        if (content != null) {
+            delta.put("content", content);
+        }
+        JSONObject choice = new JSONObject()
+                .put("index", 0)
+                .put("delta", delta)
+                .put("finish_reason", finishReason == null ? JSONObject.NULL : finishReason);
+        return new JSONObject()
+                .put("id", id)
+                .put("object", "chat.completion.chunk")
+                .put("created", created)
+                .put("model", model)
+                .put("choices", new JSONArray().put(choice))
+                .toString();
+    }
+
+    // A canned recipe of the configured length, headed by the request so replies differ per query
+    private List<String> tokens(String prompt) {
+        List<String> tokens = new ArrayList<>(settings.responseTokens);
+        String heading = prompt.length() > 60 ? prompt.substring(0, 60) : prompt;
+        tokens.add("Stub recipe for: " + heading.replace('\n', ' ') + "\n");
+        for (int i = 0; tokens.size() < settings.responseTokens; i++) {
+            tokens.add(WORDS[i % WORDS.length] + " ");
+        }
+        return tokens;
+    }
+
+    private static String lastUserMessage(JSONObject request) {
+        JSONArray messages = request.optJSONArray("messages");
+        if (messages == null) {
+            return "";
+        }
+        for (int i = messages.length() - 1; i >= 0; i--) {
+            JSONObject message = messages.optJSONObject(i);
+            if (message != null && "user".equals(message.optString("role"))) {
+                return message.optString("content", "");
+            }
+        }
+        return "";
+    }
+
+    private static void writeLine(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        // Each flush goes out as its own HTTP chunk, so the client sees tokens as they come
+        out.flush();
+    }
+
+    private static void sendJson(HttpExchange exchange, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = new JSONObject().put("error", message).toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void pause(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
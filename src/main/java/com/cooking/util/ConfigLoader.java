@@ -3,6 +3,9 @@ package com.cooking.util;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
+import java.time.Duration;
+import java.util.List;
+
 public class ConfigLoader {
     private static final Config config = ConfigFactory.load();
 
@@ -14,6 +17,12 @@ public class ConfigLoader {
         }
     }
 
+    // The shipped placeholder counts as no key, or every failover and hedge would get a 401
+    public static boolean isOpenAIConfigured() {
+        String apiKey = getOpenAIApiKey().trim();
+        return !apiKey.isEmpty() && !"your-api-key".equals(apiKey);
+    }
+
     public static String getOpenAIModel() {
         try {
             return config.getString("cooking.openai.model");
@@ -46,6 +55,737 @@ public class ConfigLoader {
         }
     }
 
+    public static List<String> getSeedNodes() {
+        try {
+            return config.getStringList("cooking.node.seed-nodes");
+        } catch (Exception e) {
+            return List.of("akka://" + getSystemName() + "@127.0.0.1:25251");
+        }
+    }
+
+    public static int getLlmPoolSize(String backend) {
+        try {
+            return config.getInt("cooking.llm-pool." + backend + ".size");
+        } catch (Exception e) {
+            return 1;
+        }
+    }
+
+    public static int getLlmMaxInFlightPerWorker(String backend) {
+        try {
+            return config.getInt("cooking.llm-pool." + backend + ".max-in-flight-per-worker");
+        } catch (Exception e) {
+            return 4;
+        }
+    }
+
+    public static int getLlmMailboxCapacity(String backend) {
+        try {
+            return config.getInt("cooking.llm-pool." + backend + ".mailbox-capacity");
+        } catch (Exception e) {
+            return 100;
+        }
+    }
+
+    // Adaptive concurrency limit: cooking.llm-pool.<backend>.limit overrides cooking.llm-pool.limit
+    private static String llmLimitPath(String backend, String key) {
+        String override = "cooking.llm-pool." + backend + ".limit." + key;
+        return config.hasPath(override) ? override : "cooking.llm-pool.limit." + key;
+    }
+
+    public static String getLlmLimitAlgorithm(String backend) {
+        try {
+            return config.getString(llmLimitPath(backend, "algorithm"));
+        } catch (Exception e) {
+            return "gradient";
+        }
+    }
+
+    public static int getLlmLimitInt(String backend, String key, int defaultValue) {
+        try {
+            return config.getInt(llmLimitPath(backend, key));
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    public static double getLlmLimitDouble(String backend, String key, double defaultValue) {
+        try {
+            return config.getDouble(llmLimitPath(backend, key));
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    public static Duration getLlmLimitDuration(String backend, String key, Duration defaultValue) {
+        try {
+            return config.getDuration(llmLimitPath(backend, key));
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean isFailoverEnabled() {
+        try {
+            return config.getBoolean("cooking.failover.enabled");
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    public static boolean isHedgingEnabled() {
+        try {
+            return config.getBoolean("cooking.failover.hedge.enabled");
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    public static double getHedgeQuantile() {
+        try {
+            return config.getDouble("cooking.failover.hedge.quantile");
+        } catch (Exception e) {
+            return 0.95;
+        }
+    }
+
+    public static Duration getHedgeMinDelay() {
+        try {
+            return config.getDuration("cooking.failover.hedge.min-delay");
+        } catch (Exception e) {
+            return Duration.ofMillis(500);
+        }
+    }
+
+    public static int getHedgeMinSamples() {
+        try {
+            return config.getInt("cooking.failover.hedge.min-samples");
+        } catch (Exception e) {
+            return 20;
+        }
+    }
+
+    public static int getBreakerMaxFailures() {
+        try {
+            return config.getInt("cooking.failover.circuit-breaker.max-failures");
+        } catch (Exception e) {
+            return 5;
+        }
+    }
+
+    public static Duration getBreakerCallTimeout() {
+        try {
+            return config.getDuration("cooking.failover.circuit-breaker.call-timeout");
+        } catch (Exception e) {
+            return Duration.ofSeconds(120);
+        }
+    }
+
+    public static Duration getBreakerResetTimeout() {
+        try {
+            return config.getDuration("cooking.failover.circuit-breaker.reset-timeout");
+        } catch (Exception e) {
+            return Duration.ofSeconds(30);
+        }
+    }
+
+    public static boolean isCacheEnabled() {
+        try {
+            return config.getBoolean("cooking.cache.enabled");
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    public static int getCacheMaxEntries() {
+        try {
+            return config.getInt("cooking.cache.max-entries");
+        } catch (Exception e) {
+            return 1000;
+        }
+    }
+
+    public static long getCacheMaxWeightBytes() {
+        try {
+            return config.getBytes("cooking.cache.max-weight");
+        } catch (Exception e) {
+            return 64L * 1024 * 1024;
+        }
+    }
+
+    public static Duration getCacheTtl() {
+        try {
+            return config.getDuration("cooking.cache.ttl");
+        } catch (Exception e) {
+            return Duration.ofMinutes(30);
+        }
+    }
+
+    public static boolean isStoreEnabled() {
+        try {
+            return config.getBoolean("cooking.store.enabled");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public static String getStoreDirectory() {
+        try {
+            return config.getString("cooking.store.directory");
+        } catch (Exception e) {
+            return "data/recipe-store";
+        }
+    }
+
+    public static int getStoreIndexSlots() {
+        try {
+            return config.getInt("cooking.store.index-slots");
+        } catch (Exception e) {
+            return 65536;
+        }
+    }
+
+    public static long getStoreSegmentSize() {
+        try {
+            return config.getBytes("cooking.store.segment-size");
+        } catch (Exception e) {
+            return 64L * 1024 * 1024;
+        }
+    }
+
+    public static boolean isJournalEnabled() {
+        try {
+            return config.getBoolean("cooking.journal.enabled");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public static String getJournalDirectory() {
+        try {
+            return config.getString("cooking.journal.directory");
+        } catch (Exception e) {
+            return "data/journal";
+        }
+    }
+
+    public static long getJournalSegmentSize() {
+        try {
+            return config.getBytes("cooking.journal.segment-size");
+        } catch (Exception e) {
+            return 64L * 1024 * 1024;
+        }
+    }
+
+    public static String getJournalFsyncPolicy() {
+        try {
+            return config.getString("cooking.journal.fsync");
+        } catch (Exception e) {
+            return "interval";
+        }
+    }
+
+    public static Duration getJournalFsyncInterval() {
+        try {
+            return config.getDuration("cooking.journal.fsync-interval");
+        } catch (Exception e) {
+            return Duration.ofSeconds(1);
+        }
+    }
+
+    public static int getJournalQueueCapacity() {
+        try {
+            return config.getInt("cooking.journal.queue-capacity");
+        } catch (Exception e) {
+            return 65536;
+        }
+    }
+
+    public static int getJournalMaxBatch() {
+        try {
+            return config.getInt("cooking.journal.max-batch");
+        } catch (Exception e) {
+            return 1024;
+        }
+    }
+
+    public static boolean isMetricsEnabled() {
+        try {
+            return config.getBoolean("cooking.metrics.enabled");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public static String getMetricsHost() {
+        try {
+            return config.getString("cooking.metrics.host");
+        } catch (Exception e) {
+            return "127.0.0.1";
+        }
+    }
+
+    public static int getMetricsPortOffset() {
+        try {
+            return config.getInt("cooking.metrics.port-offset");
+        } catch (Exception e) {
+            return 1000;
+        }
+    }
+
+    public static double getLoadgenRps() {
+        try {
+            return config.getDouble("cooking.loadgen.rps");
+        } catch (Exception e) {
+            return 10.0;
+        }
+    }
+
+    public static Duration getLoadgenWarmup() {
+        try {
+            return config.getDuration("cooking.loadgen.warmup");
+        } catch (Exception e) {
+            return Duration.ofSeconds(30);
+        }
+    }
+
+    public static Duration getLoadgenDuration() {
+        try {
+            return config.getDuration("cooking.loadgen.duration");
+        } catch (Exception e) {
+            return Duration.ofSeconds(60);
+        }
+    }
+
+    public static String getLoadgenQueriesFile() {
+        try {
+            return config.getString("cooking.loadgen.queries-file");
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    public static Duration getLoadgenAskTimeout() {
+        try {
+            return config.getDuration("cooking.loadgen.ask-timeout");
+        } catch (Exception e) {
+            return Duration.ofSeconds(60);
+        }
+    }
+
+    public static String getLoadgenReportDirectory() {
+        try {
+            return config.getString("cooking.loadgen.report-directory");
+        } catch (Exception e) {
+            return "loadgen-reports";
+        }
+    }
+
+    public static int getLoadgenPort() {
+        try {
+            return config.getInt("cooking.loadgen.port");
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    public static String getOpenAIBaseUrl() {
+        try {
+            return config.getString("cooking.openai.base-url");
+        } catch (Exception e) {
+            return "https://api.openai.com";
+        }
+    }
+
+    public static String getOllamaUrl() {
+        try {
+            return config.getString("cooking.ollama.url");
+        } catch (Exception e) {
+            return "http://localhost:11434";
+        }
+    }
+
+    /**
+     * Ollama servers to balance over; just cooking.ollama.url when none are listed.
+     */
+    public static List<String> getOllamaEndpoints() {
+        try {
+            List<String> endpoints = config.getStringList("cooking.ollama.endpoints");
+            if (!endpoints.isEmpty()) {
+                return endpoints;
+            }
+        } catch (Exception e) {
+            // fall through to the single URL
+        }
+        return List.of(getOllamaUrl());
+    }
+
+    public static Duration getOllamaBalancerDecayTime() {
+        try {
+            return config.getDuration("cooking.ollama.balancer.decay-time");
+        } catch (Exception e) {
+            return Duration.ofSeconds(10);
+        }
+    }
+
+    public static int getOllamaBalancerFailureThreshold() {
+        try {
+            return config.getInt("cooking.ollama.balancer.failure-threshold");
+        } catch (Exception e) {
+            return 3;
+        }
+    }
+
+    public static Duration getOllamaBalancerEjectionTime() {
+        try {
+            return config.getDuration("cooking.ollama.balancer.ejection-time");
+        } catch (Exception e) {
+            return Duration.ofSeconds(10);
+        }
+    }
+
+    public static Duration getOllamaHealthCheckTimeout() {
+        try {
+            return config.getDuration("cooking.ollama.startup.health-check-timeout");
+        } catch (Exception e) {
+            return Duration.ofSeconds(2);
+        }
+    }
+
+    public static boolean isOllamaWarmUpEnabled() {
+        try {
+            return config.getBoolean("cooking.ollama.startup.warm-up");
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    public static Duration getOllamaKeepAlive() {
+        try {
+            return config.getDuration("cooking.ollama.startup.keep-alive");
+        } catch (Exception e) {
+            return Duration.ofMinutes(30);
+        }
+    }
+
+    public static Duration getOllamaWarmUpRefreshInterval() {
+        try {
+            return config.getDuration("cooking.ollama.startup.refresh-interval");
+        } catch (Exception e) {
+            return Duration.ofMinutes(2);
+        }
+    }
+
+    public static Duration getOllamaModelCacheTtl() {
+        try {
+            return config.getDuration("cooking.ollama.model-cache-ttl");
+        } catch (Exception e) {
+            return Duration.ofSeconds(60);
+        }
+    }
+
+    public static boolean isOllamaTieringEnabled() {
+        try {
+            return config.getBoolean("cooking.ollama.tiers.enabled");
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public static double getOllamaTierThreshold() {
+        try {
+            return config.getDouble("cooking.ollama.tiers.threshold");
+        } catch (Exception e) {
+            return 0.5;
+        }
+    }
+
+    public static int getOllamaTierMinRecipeChars() {
+        try {
+            return config.getInt("cooking.ollama.tiers.min-recipe-chars");
+        } catch (Exception e) {
+            return 200;
+        }
+    }
+
+    /**
+     * Model of the "small" or "large" tier.
+     */
+    public static String getOllamaTierModel(String tier) {
+        try {
+            return config.getString("cooking.ollama.tiers." + tier + ".model");
+        } catch (Exception e) {
+            return "large".equals(tier) ? "llama3.1:8b" : getOllamaModel();
+        }
+    }
+
+    /**
+     * How far back a tier's p95 looks when it is compared with the tier's SLO.
+     */
+    public static Duration getOllamaTierSloWindow() {
+        try {
+            return config.getDuration("cooking.ollama.tiers.slo-window");
+        } catch (Exception e) {
+            return Duration.ofSeconds(60);
+        }
+    }
+
+    public static Duration getOllamaTierSlo(String tier) {
+        try {
+            return config.getDuration("cooking.ollama.tiers." + tier + ".slo");
+        } catch (Exception e) {
+            return "large".equals(tier) ? Duration.ofSeconds(30) : Duration.ofSeconds(8);
+        }
+    }
+
+    public static String getOllamaModel() {
+        try {
+            return config.getString("cooking.ollama.model");
+        } catch (Exception e) {
+            return "llama3.2:1b";
+        }
+    }
+
+    public static String getStubServerHost() {
+        try {
+            return config.getString("cooking.stub-server.host");
+        } catch (Exception e) {
+            return "127.0.0.1";
+        }
+    }
+
+    public static int getSerializationCompressThreshold() {
+        try {
+            return config.getInt("cooking.serialization.compress-threshold");
+        } catch (Exception e) {
+            return 1024;
+        }
+    }
+
+    public static int getStreamRefThreshold() {
+        try {
+            return config.getInt("cooking.stream-ref.threshold");
+        } catch (Exception e) {
+            return 4096;
+        }
+    }
+
+    public static int getStreamRefChunkSize() {
+        try {
+            return Math.max(1, config.getInt("cooking.stream-ref.chunk-size"));
+        } catch (Exception e) {
+            return 1024;
+        }
+    }
+
+    public static Duration getFlightTimeout() {
+        try {
+            return config.getDuration("cooking.recipe-finder.flight-timeout");
+        } catch (Exception e) {
+            return Duration.ofMinutes(3);
+        }
+    }
+
+    public static int getPipelineBufferSize() {
+        try {
+            return Math.max(1, config.getInt("cooking.pipeline.buffer-size"));
+        } catch (Exception e) {
+            return 256;
+        }
+    }
+
+    public static String getPipelineOverflowStrategy() {
+        try {
+            return config.getString("cooking.pipeline.overflow-strategy");
+        } catch (Exception e) {
+            return "drop-new";
+        }
+    }
+
+    public static int getPipelineMaxConcurrentOffers() {
+        try {
+            return Math.max(1, config.getInt("cooking.pipeline.max-concurrent-offers"));
+        } catch (Exception e) {
+            return 64;
+        }
+    }
+
+    public static int getPipelineLookupParallelism() {
+        try {
+            return Math.max(1, config.getInt("cooking.pipeline.lookup-parallelism"));
+        } catch (Exception e) {
+            return 4;
+        }
+    }
+
+    public static int getPipelineLlmParallelism() {
+        try {
+            return Math.max(1, config.getInt("cooking.pipeline.llm-parallelism"));
+        } catch (Exception e) {
+            return 8;
+        }
+    }
+
+    public static Duration getPipelineAskTimeout() {
+        try {
+            return config.getDuration("cooking.pipeline.ask-timeout");
+        } catch (Exception e) {
+            return Duration.ofSeconds(35);
+        }
+    }
+
+    public static int getStubServerPort() {
+        try {
+            return config.getInt("cooking.stub-server.port");
+        } catch (Exception e) {
+            return 11435;
+        }
+    }
+
+    public static Duration getStubServerPrefillDelay() {
+        try {
+            return config.getDuration("cooking.stub-server.prefill-delay");
+        } catch (Exception e) {
+            return Duration.ofMillis(200);
+        }
+    }
+
+    public static Duration getStubServerPrefillTokenLatency() {
+        try {
+            return config.getDuration("cooking.stub-server.prefill-token-latency");
+        } catch (Exception e) {
+            return Duration.ZERO;
+        }
+    }
+
+    public static Duration getStubServerTokenLatency() {
+        try {
+            return config.getDuration("cooking.stub-server.token-latency");
+        } catch (Exception e) {
+            return Duration.ofMillis(20);
+        }
+    }
+
+    public static int getStubServerResponseTokens() {
+        try {
+            return config.getInt("cooking.stub-server.response-tokens");
+        } catch (Exception e) {
+            return 200;
+        }
+    }
+
+    public static double getStubServerErrorRate() {
+        try {
+            return config.getDouble("cooking.stub-server.error-rate");
+        } catch (Exception e) {
+            return 0.0;
+        }
+    }
+
+    public static int getStubServerMaxConcurrent() {
+        try {
+            return config.getInt("cooking.stub-server.max-concurrent");
+        } catch (Exception e) {
+            return 4;
+        }
+    }
+
+    public static int getStubServerMaxQueue() {
+        try {
+            return config.getInt("cooking.stub-server.max-queue");
+        } catch (Exception e) {
+            return 512;
+        }
+    }
+
+    public static long getSimulationRequests() {
+        try {
+            return config.getLong("cooking.simulation.requests");
+        } catch (Exception e) {
+            return 100_000L;
+        }
+    }
+
+    public static double getSimulationRps() {
+        try {
+            return config.getDouble("cooking.simulation.rps");
+        } catch (Exception e) {
+            return 10.0;
+        }
+    }
+
+    public static long getSimulationSeed() {
+        try {
+            return config.getLong("cooking.simulation.seed");
+        } catch (Exception e) {
+            return 42L;
+        }
+    }
+
+    public static Duration getSimulationResolution() {
+        try {
+            return config.getDuration("cooking.simulation.resolution");
+        } catch (Exception e) {
+            return Duration.ofMillis(1);
+        }
+    }
+
+    public static Duration getSimulationMaxStep() {
+        try {
+            return config.getDuration("cooking.simulation.max-step");
+        } catch (Exception e) {
+            return Duration.ofMillis(100);
+        }
+    }
+
+    public static int getSimulationDistinctQueries() {
+        try {
+            return config.getInt("cooking.simulation.distinct-queries");
+        } catch (Exception e) {
+            return 5000;
+        }
+    }
+
+    public static double getSimulationZipfExponent() {
+        try {
+            return config.getDouble("cooking.simulation.zipf-exponent");
+        } catch (Exception e) {
+            return 1.0;
+        }
+    }
+
+    public static Config getSimulationBackends() {
+        try {
+            return config.getConfig("cooking.simulation.backends");
+        } catch (Exception e) {
+            return ConfigFactory.empty();
+        }
+    }
+
+    public static String getBlockingIoMode() {
+        try {
+            return config.getString("cooking.blocking-io.mode");
+        } catch (Exception e) {
+            return "pool";
+        }
+    }
+
+    public static int getBlockingIoMaxConcurrent() {
+        try {
+            return config.getInt("cooking.blocking-io.max-concurrent");
+        } catch (Exception e) {
+            return 64;
+        }
+    }
+
+    public static int getBlockingIoQueueCapacity() {
+        try {
+            return config.getInt("cooking.blocking-io.queue-capacity");
+        } catch (Exception e) {
+            return 1024;
+        }
+    }
+
     public static Config getConfig() {
         return config;
     }
@@ -56,6 +796,6 @@ public class ConfigLoader {
         System.out.println("- Temperature: " + getOpenAITemperature());
         System.out.println("- Max Tokens: " + getMaxTokens());
         System.out.println("- System Name: " + getSystemName());
-        System.out.println("- API Key configured: " + (!getOpenAIApiKey().isEmpty()));
+        System.out.println("- API Key configured: " + isOpenAIConfigured());
     }
 }
\ No newline at end of file